@@ -0,0 +1,119 @@
+/** AbstractLazySortableTreeTableNode.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import java.util.List;
+
+import javax.swing.tree.TreeNode;
+
+import org.jdesktop.swingx.treetable.MutableTreeTableNode;
+import org.jdesktop.swingx.treetable.TreeTableNode;
+
+/**
+ * A sortable node whose children are created by a ChildLoader when they are
+ * first needed, so that a large tree need not be built before it is shown.
+ * <p>
+ * Until loaded, the node has no children, but is not a leaf if
+ * {@link ChildLoader#countChildren(AbstractLazySortableTreeTableNode)} gives
+ * any, so the TreeTable shows it as expandable. The children are only loaded
+ * by SortableTreeTableModel, which notifies them: once the node has been
+ * expanded, or when it is sorted with
+ * {@link SortableTreeTableModel#sort(TreeTableNode)}, or has a child inserted
+ * through the model. Sorts of a whole tree skip the nodes not loaded. While
+ * not loaded the node is always shown by a filtered model, as its
+ * descendants are not known.
+ * 
+ * @see ChildLoader
+ */
+public abstract class AbstractLazySortableTreeTableNode extends
+		AbstractSortableTreeTableNode {
+
+	private final ChildLoader loader;
+	private boolean loaded = false;
+	// children to be loaded, -1 if not yet counted
+	private int count = -1;
+
+	/**
+	 * @param loader
+	 */
+	public AbstractLazySortableTreeTableNode(ChildLoader loader) {
+		this.loader = loader;
+	}
+
+	/**
+	 * @param userObject
+	 * @param loader
+	 */
+	public AbstractLazySortableTreeTableNode(Object userObject,
+			ChildLoader loader) {
+		super(userObject);
+		this.loader = loader;
+	}
+
+	// ==================================================== overridden methods
+
+	/**
+	 * Until loaded, false if there are children to load
+	 */
+	@Override
+	public boolean isLeaf() {
+		if (!loaded) {
+			if (count == -1) {
+				count = loader.countChildren(this);
+			}
+			return count == 0;
+		}
+		return super.isLeaf();
+	}
+
+	@Override
+	public int getIndex(TreeNode node) {
+		if (!loaded) {
+			return -1;
+		}
+		return super.getIndex(node);
+	}
+
+	@Override
+	public void insert(MutableTreeTableNode child, int index) {
+		load();
+		super.insert(child, index);
+	}
+
+	// ======================================================= public methods
+
+	/**
+	 * @return true if the children have been loaded
+	 */
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	// ======================================================= package methods
+
+	/**
+	 * Load the children, if not loaded. No model is notified.
+	 * 
+	 * @return true if loaded now
+	 */
+	boolean load() {
+		if (loaded) {
+			return false;
+		}
+		loaded = true;
+		count = -1;
+		List<? extends MutableTreeTableNode> kids = loader.loadChildren(this);
+		for (MutableTreeTableNode child : kids) {
+			add(child);
+		}
+		return true;
+	}
+
+	@Override
+	boolean isShown() {
+		return !loaded || super.isShown();
+	}
+}
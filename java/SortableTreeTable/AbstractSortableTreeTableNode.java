@@ -6,12 +6,16 @@
  */
 package org.codelutin.jtimer.ui.treetable.sorting;
 
+import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.swing.tree.TreeNode;
 
+import org.jdesktop.swingx.decorator.SortKey;
 import org.jdesktop.swingx.decorator.SortOrder;
 import org.jdesktop.swingx.treetable.AbstractMutableTreeTableNode;
 import org.jdesktop.swingx.treetable.MutableTreeTableNode;
@@ -38,8 +42,13 @@ import org.jdesktop.swingx.treetable.TreeTableNode;
  * <p>
  * This class does not handle changes to the values of fields being sorted. 
  * This must be done manually by calling
- * {@link SortableTreeTableModel#sort(TreeTableNode)} or
+ * {@link SortableTreeTableModel#valueChanged(TreeTableNode, int)} for a single
+ * changed child, {@link SortableTreeTableModel#sort(TreeTableNode)} or
  * {@link SortableTreeTableModel#sort()} to re-sort the whole Treetable
+ * <p>
+ * If the model is filtered, getChildCount, getChildAt and getIndex see only
+ * the children shown, in sort order. convertRowIndexToModel and
+ * convertRowIndexToView convert indexes in the sort order of all children.
  * 
  */
 public abstract class AbstractSortableTreeTableNode extends
@@ -47,8 +56,47 @@ public abstract class AbstractSortableTreeTableNode extends
 	
 	private boolean sortable = true;
 	private boolean sorted = false;
+	// sort buffers are kept between sorts, and only grown when needed
 	private int[] modelToView;
-	private Row[] viewToModel;
+	private int[] viewToModel;
+	private int[] work;
+	private int sortedCount;
+	// view indexes below this are in their final order, the rest are not
+	private int sortedPrefix;
+	// rows to order at a time, when sorted partially
+	private int window;
+	// view to model order replaced by the last sort, or reset
+	private int[] previous;
+	private int previousCount = -1;
+	// sort keys are kept between sorts, when cached
+	private boolean keysCached = false;
+	private long keyVersion = 0;
+	private long loadedVersion;
+	// children added or removed, and the count the keys were loaded at
+	private int childChanges = 0;
+	private int keyedChanges = -1;
+	// filter of the model, and the children it shows
+	private NodeFilter filter;
+	private boolean match = true;
+	private int matchCount;
+	// model index by shown index, and shown index (or -1) by model index
+	private int[] shown;
+	private int[] shownIndex;
+	private int shownCount;
+	private boolean shownValid = false;
+	private RowOrder order;
+	// whether the order counts its comparisons, for metrics
+	private boolean counting = false;
+	// model index of each child, when indexed
+	private IdentityHashMap<TreeNode, Integer> childIndex;
+	private boolean childIndexValid = false;
+	// set while a child is inserted or removed, see getIndex
+	private boolean mutating = false;
+	// incremented when the view order is replaced, or children are added or
+	// removed, so a background sort of older children is not installed
+	private int orderVersion = 0;
+	
+	private static final AtomicLong savedAllocations = new AtomicLong();
 	
 	/**
 	 * 
@@ -83,6 +131,15 @@ public abstract class AbstractSortableTreeTableNode extends
 	
 	@Override
 	public TreeTableNode getChildAt(int childIndex) {
+		if (filter != null) {
+			validateShown();
+			if (childIndex < 0 || childIndex >= shownCount) {
+				// shown has room to spare
+				throw new IndexOutOfBoundsException("Index: " + childIndex
+						+ ", Size: " + shownCount);
+			}
+			return super.getChildAt(shown[childIndex]);
+		}
 		if (!sortable || !sorted) {
 			return super.getChildAt(childIndex);
 		}
@@ -91,15 +148,121 @@ public abstract class AbstractSortableTreeTableNode extends
 	
 	@Override
 	public int getIndex(TreeNode node) {
-		int x = children.indexOf(node);
+		if (mutating) {
+			// SwingX's setParent asks whether node is a child, while it is
+			// being inserted or removed: the indexes and the children shown
+			// are not current
+			return children.indexOf(node);
+		}
+		int x = indexOfChild(node);
+		if (filter != null) {
+			if (x == -1) {
+				return -1;
+			}
+			validateShown();
+			return shownIndex[x];
+		}
 		return(convertRowIndexToView(x));
 	}
 	
+	@Override
+	public int getChildCount() {
+		if (filter == null) {
+			return super.getChildCount();
+		}
+		validateShown();
+		return shownCount;
+	}
+	
+	@Override
+	public void add(MutableTreeTableNode child) {
+		// getChildCount may only count the children shown
+		insert(child, children.size());
+	}
+	
+	@Override
+	public void insert(MutableTreeTableNode child, int index) {
+		boolean append = childIndex != null && childIndexValid
+				&& index == children.size() && !childIndex.containsKey(child);
+		if (childIndex != null && !append) {
+			childIndexValid = false;
+		}
+		previousCount = -1;
+		childChanges++;
+		orderVersion++;
+		shownValid = false;
+		mutating = true;
+		try {
+			super.insert(child, index);
+		} finally {
+			mutating = false;
+		}
+		if (append) {
+			childIndex.put(child, index);
+		}
+	}
+	
+	@Override
+	public void remove(int index) {
+		TreeNode child = children.get(index);
+		boolean last = index == children.size() - 1;
+		if (childIndex != null) {
+			if (last && childIndexValid) {
+				childIndex.remove(child);
+			} else {
+				childIndexValid = false;
+			}
+		}
+		previousCount = -1;
+		childChanges++;
+		orderVersion++;
+		shownValid = false;
+		mutating = true;
+		try {
+			super.remove(index);
+		} finally {
+			mutating = false;
+		}
+	}
+	
+	@Override
+	public void remove(MutableTreeTableNode node) {
+		int x = (childIndex == null) ? -1 : indexOfChild(node);
+		if (x == -1) {
+			childIndexValid = false;
+			previousCount = -1;
+			childChanges++;
+			orderVersion++;
+			shownValid = false;
+			mutating = true;
+			try {
+				super.remove(node);
+			} finally {
+				mutating = false;
+			}
+		} else {
+			remove(x);
+		}
+	}
+	
 	// ======================================================= public methods
 
     public int convertRowIndexToModel(int index) {
         if (sorted) {
-        	return viewToModel[index].modelIndex;
+        	if (index < 0 || index >= sortedCount) {
+        		// viewToModel has room to spare; children added since the sort
+        		// are after the sorted ones, as in convertRowIndexToView
+        		if (index < 0 || index >= children.size()) {
+        			throw new IndexOutOfBoundsException("Index: " + index
+        					+ ", Size: " + children.size());
+        		}
+        		return index;
+        	}
+        	if (index >= sortedPrefix) {
+        		// not placed yet - found without placing it
+        		return select(index);
+        	}
+        	return viewToModel[index];
 		} else {
 			return index;
 		}
@@ -107,16 +270,115 @@ public abstract class AbstractSortableTreeTableNode extends
 
     public int convertRowIndexToView(int index) {
         if (sorted) {
-        	if (index == -1 || index >= modelToView.length) {
+        	if (index == -1 || index >= sortedCount) {
         		return index;
         	} else {
-        		return modelToView[index];
+        		int view = modelToView[index];
+        		if (view >= sortedPrefix) {
+        			// not placed yet - ranked among the rows not placed
+        			view = sortedPrefix;
+        			for (int i = sortedPrefix; i < sortedCount; i++) {
+        				if (order.compare(viewToModel[i], index) < 0) {
+        					view++;
+        				}
+        			}
+        		}
+        		return view;
         	}
         } else {
         	return index;
 		}
     }
 
+    /**
+     * Returns the number of array allocations avoided so far, over all nodes,
+     * by reusing the buffers of a previous sort.
+     * 
+     * @return count of saved allocations
+     */
+    public static long getSavedAllocationCount() {
+    	return savedAllocations.get();
+    }
+
+    /**
+     * Keep an identity map from each child to its position, so that
+     * {@link #getIndex(TreeNode)} does not scan the children. This is worth
+     * while for nodes with many children, as the TreeTable looks up child
+     * indexes often when painting and selecting. Children appended or removed
+     * from the end keep the map current; other changes rebuild it on the next
+     * lookup.
+     * 
+     * @param indexed
+     */
+    public void setChildIndexed(boolean indexed) {
+    	if (!indexed) {
+    		childIndex = null;
+    	} else if (childIndex == null) {
+    		childIndex = new IdentityHashMap<TreeNode, Integer>();
+    		childIndexValid = false;
+    	}
+    }
+    
+    /**
+     * If set, the sort keys read from the children are kept between sorts, so
+     * that sorting again on the same columns, or toggling the sort order, does
+     * not call getSortValueAt for every child. Toggling the order reverses the
+     * existing sort.<br>
+     * The keys are read again when children are added or removed, after
+     * {@link #invalidateKeys()}, or when {@link #getKeyVersion()} changes.
+     * Changes to values notified through
+     * {@link SortableTreeTableModel#valueChanged(TreeTableNode, int)} are
+     * handled by the model. Any other change to the values of children must
+     * be followed by invalidateKeys before sorting again.
+     * 
+     * @param cached
+     */
+    public void setKeysCached(boolean cached) {
+    	keysCached = cached;
+    }
+    
+    /**
+     * Discard the cached sort keys of the children, so that the next sort
+     * reads them again
+     */
+    public void invalidateKeys() {
+    	keyVersion++;
+    }
+    
+    /**
+     * @return false if the model's filter does not include this node. It may
+     * still be shown if any of its descendants are included.
+     */
+    public boolean isMatch() {
+    	return match;
+    }
+    
+    /**
+     * @return the number of descendants included by the model's filter, or 0
+     * if the model is not filtered. Descendants below a node which does not
+     * extend this class are not counted.
+     */
+    public int getMatchCount() {
+    	return matchCount;
+    }
+    
+    /**
+     * The value of column to sort and filter by, which by default is
+     * {@link #getValueAt(int)}.<br>
+     * Subclasses may override this to give a value which is cheaper to
+     * compare but sorts the same, e.g. the code of a value in a sorted
+     * dictionary of a column's values, as an Integer, so that the sort keys
+     * are held unboxed. A NodeFilter may compare it in place of the value.
+     * The codes of the children must then come from the one dictionary, as
+     * those of SymbolTables loaded together do once renumbered.
+     * 
+     * @param column
+     * @return the value, or a value in the same order
+     */
+    public Object getSortValueAt(int column) {
+    	return getValueAt(column);
+    }
+    
     /**
      * This should only be called before nodes are added to model. It does not
      * instigate any action. After model set up use 
@@ -138,14 +400,14 @@ public abstract class AbstractSortableTreeTableNode extends
      * @param ascending
      */
     public void presortChildren(int column, boolean ascending) {
-		int count = getChildCount();
+		int count = children.size();
 		if (count == 0) return;
 		Row[] work = new Row[count];
 		int x = 0;
 		SortOrder order = 
 					(ascending) ? SortOrder.ASCENDING : SortOrder.DESCENDING;
 		for (TreeTableNode node : children) {
-			Row r = new Row(node.getValueAt(column), x, order);
+			Row r = new Row(getSortValue(node, column), x, order);
 			work[x++] = r;			
 		}
 		// sort
@@ -161,6 +423,11 @@ public abstract class AbstractSortableTreeTableNode extends
 		for (int i = 0; i < newChildren.size(); i++) {
 			children.set(i, newChildren.get(i));			
 		}
+		childIndexValid = false;
+		previousCount = -1;
+		childChanges++;
+		orderVersion++;
+		shownValid = false;
 	}
 
     // ===================================================== protected methods
@@ -173,43 +440,431 @@ public abstract class AbstractSortableTreeTableNode extends
 		return true;
 	}
 	
+	/**
+	 * The version of the values of the children. Cached sort keys are only
+	 * used while this is unchanged. Subclasses whose values are derived from
+	 * other data, e.g. live quotes, may override this to add a version of that
+	 * data.
+	 * 
+	 * @see #setKeysCached(boolean)
+	 */
+	protected long getKeyVersion() {
+		return keyVersion;
+	}
+	
 	// ======================================================= package methods
+	
+	/**
+	 * @return the sort value of column of node, which is its value unless node
+	 * extends this class
+	 * @see #getSortValueAt(int)
+	 */
+	static Object getSortValue(TreeTableNode node, int column) {
+		if (node instanceof AbstractSortableTreeTableNode) {
+			return ((AbstractSortableTreeTableNode) node).getSortValueAt(column);
+		}
+		return node.getValueAt(column);
+	}
+	
 	// following only called from SortableTreeTableModel
 	
-	void sort(int column, SortOrder order) {
-		int count = getChildCount();
+	/*
+	 * The keys of each sort column are extracted once into a ColumnKeys,
+	 * unboxed where the column is numeric, and an int permutation is sorted by
+	 * them, so no object is allocated per child. The arrays are reused by the
+	 * next sort. String keys are converted to CollationKeys once, if a
+	 * collator is given.
+	 * If window is less than the number of children, only that many rows are
+	 * put in order, and the rest a window at a time by placeRows. Rows not
+	 * yet placed are still converted, by searching them.
+	 * 
+	 * @param window - rows to sort at a time, or 0 to sort all
+	 */
+	void sort(List<SortKey> sortKeys, Collator collator, int window) {
+		orderVersion++;
+		int count = children.size();
 		if (count == 0) {
 			sorted = false;
 			return;
 		}
-		modelToView = new int[count];
-		// load view to model array
-		viewToModel = new Row[count];
-		int x = 0;
-		for (TreeTableNode node : children) {
-			Row r = new Row(node.getValueAt(column), x, order);
-			viewToModel[x++] = r;			
+		boolean wasSorted = sorted && sortedCount == count 
+				&& sortedPrefix == count;
+		keepOrder(count);
+		boolean cached = keysValid(count);
+		if (cached && wasSorted && order.isReversedBy(sortKeys, collator)) {
+			// previous holds the order being reversed
+			order.setSortKeys(sortKeys, collator);
+			order.reverse(previous, viewToModel, count);
+	        for (int i = count - 1; i >= 0; i--) {
+	            modelToView[viewToModel[i]] = i;
+	        }
+	        this.window = window;
+			return;
 		}
-		// sort
-		Arrays.sort(viewToModel);
+		int saved = 0;
+		if (order == null) {
+			order = new RowOrder(sortKeys, collator);
+			order.counting = counting;
+			cached = false;
+		} else {
+			cached = cached && order.hasColumns(sortKeys, collator);
+			order.setSortKeys(sortKeys, collator);
+		}
+		if (!cached) {
+			saved = order.load(children);
+			keyedChanges = childChanges;
+			loadedVersion = getKeyVersion();
+		}
+		if (viewToModel == null || viewToModel.length < count) {
+			int capacity = capacity(count, viewToModel);
+			modelToView = new int[capacity];
+			viewToModel = new int[capacity];
+			work = new int[capacity];
+		} else {
+			saved += 3;
+		}
+		// load and sort view to model array
+		if (window > 0 && window < count) {
+			for (int i = 0; i < count; i++) {
+				viewToModel[i] = i;
+			}
+			order.select(viewToModel, 0, count, window);
+			order.sortRange(viewToModel, work, 0, window);
+			sortedPrefix = window;
+		} else {
+			order.sort(viewToModel, work, count);
+			sortedPrefix = count;
+		}
+		this.window = window;
 		// load model to view array
         for (int i = count - 1; i >= 0; i--) {
-            modelToView[viewToModel[i].modelIndex] = i;
+            modelToView[viewToModel[i]] = i;
+        }
+        sortedCount = count;
+        sorted = true;
+        if (saved > 0) {
+        	savedAllocations.addAndGet(saved);
+        }
+	}
+	
+	/**
+	 * Moves a single child to its new position after its value in one of the
+	 * sort columns has changed. The other children keep the keys captured by
+	 * the last sort, so this is a binary search over the existing view order
+	 * followed by a shift of the rows between the old and new positions.
+	 * 
+	 * @param row - model index of the changed child
+	 * @param column - the index of the column which changed
+	 * @return the new view index of the child
+	 */
+	int reposition(int row, int column) {
+		previousCount = -1;
+		completeSort();
+		int viewIndex = modelToView[row];
+		if (!order.set(row, children.get(row), column)) {
+			return viewIndex;
+		}
+		shownValid = false;
+		// search the other rows, skipping the one being moved
+		int low = 0;
+		int high = sortedCount - 1;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			int r = viewToModel[(mid < viewIndex) ? mid : mid + 1];
+			if (order.compare(r, row) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		int newIndex = low;
+		if (newIndex < viewIndex) {
+			System.arraycopy(viewToModel, newIndex, viewToModel, newIndex + 1,
+					viewIndex - newIndex);
+		} else if (newIndex > viewIndex) {
+			System.arraycopy(viewToModel, viewIndex + 1, viewToModel, viewIndex,
+					newIndex - viewIndex);
+		}
+		viewToModel[newIndex] = row;
+		int from = Math.min(newIndex, viewIndex);
+		int to = Math.max(newIndex, viewIndex);
+		for (int i = from; i <= to; i++) {
+			modelToView[viewToModel[i]] = i;
+		}
+		return newIndex;
+	}
+	
+	/**
+	 * Places a newly inserted child in the existing sort order, without
+	 * re-sorting the other children.
+	 * 
+	 * @param modelIndex - model index at which the child was inserted
+	 * @return the view index of the child, or -1 if the children no longer
+	 * match the sort, and a full sort is needed
+	 */
+	int insertSorted(int modelIndex) {
+		int count = children.size();
+		if (!sorted || sortedCount != count - 1) {
+			return -1;
+		}
+		completeSort();
+		shownValid = false;
+		order.insert(modelIndex, children.get(modelIndex));
+		if (viewToModel.length < count) {
+			int capacity = capacity(count, viewToModel);
+			viewToModel = Arrays.copyOf(viewToModel, capacity);
+			modelToView = new int[capacity];
+			work = new int[capacity];
+		}
+		for (int i = 0; i < sortedCount; i++) {
+			if (viewToModel[i] >= modelIndex) {
+				viewToModel[i]++;
+			}
+		}
+		int low = 0;
+		int high = sortedCount;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (order.compare(viewToModel[mid], modelIndex) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		System.arraycopy(viewToModel, low, viewToModel, low + 1,
+				sortedCount - low);
+		viewToModel[low] = modelIndex;
+		sortedCount = count;
+		sortedPrefix = count;
+		for (int i = 0; i < count; i++) {
+			modelToView[viewToModel[i]] = i;
+		}
+		keptKeys();
+		return low;
+	}
+	
+	/**
+	 * Takes a removed child out of the existing sort order, without
+	 * re-sorting the other children.
+	 * 
+	 * @param modelIndex - model index the child had before it was removed
+	 * @return false if the children no longer match the sort, and a full sort
+	 * is needed
+	 */
+	boolean removeSorted(int modelIndex) {
+		int count = children.size();
+		if (!sorted || sortedCount != count + 1) {
+			return false;
+		}
+		completeSort();
+		shownValid = false;
+		int view = modelToView[modelIndex];
+		order.remove(modelIndex);
+		System.arraycopy(viewToModel, view + 1, viewToModel, view,
+				sortedCount - view - 1);
+		sortedCount = count;
+		sortedPrefix = count;
+		for (int i = 0; i < count; i++) {
+			if (viewToModel[i] > modelIndex) {
+				viewToModel[i]--;
+			}
+			modelToView[viewToModel[i]] = i;
+		}
+		if (count == 0) {
+			sorted = false;
+		}
+		keptKeys();
+		return true;
+	}
+	
+	/**
+	 * Captures the keys of the sort columns, for a sort to be computed on
+	 * another thread. The node itself is not changed.
+	 */
+	RowOrder snapshot(List<SortKey> sortKeys, Collator collator) {
+		RowOrder o = new RowOrder(sortKeys, collator);
+		o.load(children);
+		return o;
+	}
+	
+	/**
+	 * @return a number which changes whenever the view order is replaced,
+	 * other than by {@link #reposition(int, int)}, or children are added or
+	 * removed
+	 */
+	int getOrderVersion() {
+		return orderVersion;
+	}
+	
+	/**
+	 * Installs a sort computed from a snapshot. The arrays become the node's
+	 * own.
+	 * 
+	 * @param order - the snapshot sorted
+	 * @param sortedViewToModel - the result of sorting order
+	 * @return false if the number of children has changed since the snapshot
+	 */
+	boolean applySort(RowOrder order, int[] sortedViewToModel) {
+		int count = children.size();
+		if (order.count() != count || count == 0) {
+			return false;
+		}
+		orderVersion++;
+		keepOrder(count);
+		this.order = order;
+		keyedChanges = -1;
+		viewToModel = sortedViewToModel;
+		if (modelToView == null || modelToView.length < count) {
+			modelToView = new int[count];
+		}
+		if (work == null || work.length < count) {
+			work = new int[viewToModel.length];
+		}
+        for (int i = count - 1; i >= 0; i--) {
+            modelToView[viewToModel[i]] = i;
         }
+        sortedCount = count;
+        sortedPrefix = count;
         sorted = true;
+		return true;
+	}
+	
+	/**
+	 * child by model index, without searching the rows not yet placed
+	 */
+	TreeTableNode getChildAtModel(int modelIndex) {
+		return children.get(modelIndex);
+	}
+	
+	/**
+	 * number of children, including those not shown
+	 */
+	int getChildCountModel() {
+		return children.size();
+	}
+	
+	/**
+	 * @return model index of child, or -1
+	 */
+	int getModelIndex(TreeNode child) {
+		return indexOfChild(child);
+	}
+	
+	/**
+	 * @return number of times two children have been compared, over all sorts
+	 * while counting
+	 */
+	long getComparisons() {
+		return (order == null) ? 0 : order.comparisons;
+	}
+	
+	/**
+	 * Count the comparisons of the following sorts, for metrics. Set once per
+	 * sort, so that without metrics the sort does not count.
+	 */
+	void setCounting(boolean counting) {
+		this.counting = counting;
+		if (order != null) {
+			order.counting = counting;
+		}
+	}
+	
+	/**
+	 * Set the filter of the model, which decides which children are shown
+	 * 
+	 * @param matchCount - number of descendants included
+	 */
+	void setFilter(NodeFilter filter, int matchCount) {
+		this.filter = filter;
+		this.matchCount = matchCount;
+		shownValid = false;
+	}
+	
+	void setMatch(boolean match) {
+		this.match = match;
+	}
+	
+	void addMatchCount(int delta) {
+		matchCount += delta;
+	}
+	
+	/**
+	 * @return true if shown by a filtered parent
+	 */
+	boolean isShown() {
+		return match || matchCount > 0;
+	}
+	
+	/**
+	 * The children shown must be found again, as one may have been shown or
+	 * hidden
+	 */
+	void invalidateShown() {
+		shownValid = false;
 	}
 	
 	void reset() {
+		orderVersion++;
+		keepOrder(children.size());
 		sorted = false;
 	}
 	
+	/**
+	 * Compares the view order replaced by the last sort, or reset, with the
+	 * current one. Can only be called once for each sort.
+	 * 
+	 * @return the children moved, or null if the previous order is not known
+	 * because children have been added or removed since, or if either order
+	 * is partial
+	 */
+	RowMoves moves() {
+		int count = children.size();
+		if (previousCount != count || (sorted && sortedPrefix < sortedCount)
+				|| filter != null) {
+			previousCount = -1;
+			return null;
+		}
+		previousCount = -1;
+		int[] newView;
+		int[] newOrder;
+		if (sorted) {
+			newView = modelToView;
+			newOrder = viewToModel;
+		} else {
+			newView = identity(count);
+			newOrder = newView;
+		}
+		return new RowMoves(previous, newView, newOrder, children, count);
+	}
+	
 	boolean isSorted() {
 		return sorted;
 	}
 	
+	/**
+	 * @return true if some rows are not yet placed by a partial sort
+	 */
+	boolean isPartiallySorted() {
+		return sorted && sortedPrefix < sortedCount;
+	}
+	
+	/**
+	 * Put the rows up to view in order, a window at a time, if sorted
+	 * partially. The order seen through convertRowIndexToModel and
+	 * convertRowIndexToView is unchanged, but placed rows are then read
+	 * without searching the rest.
+	 * 
+	 * @param view - last view index about to be shown
+	 */
+	void placeRows(int view) {
+		if (isPartiallySorted() && view >= sortedPrefix) {
+			sortTo(Math.min(view, sortedCount - 1));
+		}
+	}
+	
 	boolean canSort() { 
 		if (!sortable || !getAllowsChildren()) return false;
-		int count = getChildCount();
+		int count = children.size();
 		if (count == 0) {
 			return false;
 		}
@@ -218,7 +873,159 @@ public abstract class AbstractSortableTreeTableNode extends
 	
 	// ======================================================= private methods
 	
-
+	/*
+	 * model index of child, or -1
+	 */
+	private int indexOfChild(TreeNode node) {
+		if (childIndex == null) {
+			return children.indexOf(node);
+		}
+		if (!childIndexValid) {
+			childIndex.clear();
+			for (int i = 0; i < children.size(); i++) {
+				childIndex.put(children.get(i), i);
+			}
+			childIndexValid = true;
+		}
+		Integer x = childIndex.get(node);
+		return (x == null) ? -1 : x;
+	}
+	
+	/*
+	 * Keep the view order about to be replaced, for moves(). The old view to
+	 * model array becomes the previous order, and the previous array is
+	 * reused for the new one.
+	 */
+	private void keepOrder(int count) {
+		shownValid = false;
+		if (sorted && sortedCount == count && sortedPrefix == count) {
+			int[] old = viewToModel;
+			viewToModel = previous;
+			previous = old;
+			if (viewToModel == null || viewToModel.length < modelToView.length) {
+				viewToModel = new int[modelToView.length];
+			}
+		} else if (!sorted) {
+			if (previous == null || previous.length < count) {
+				previous = new int[capacity(count, previous)];
+			}
+			for (int i = 0; i < count; i++) {
+				previous[i] = i;
+			}
+		} else {
+			previousCount = -1;
+			return;
+		}
+		previousCount = count;
+	}
+	
+	/*
+	 * Put the next window of rows in order, and at least up to view. Near the
+	 * end all the remaining rows are sorted.
+	 */
+	private void sortTo(int view) {
+		int to = Math.max(view + 1, sortedPrefix + window);
+		if (to + window >= sortedCount) {
+			to = sortedCount;
+		} else {
+			order.select(viewToModel, sortedPrefix, sortedCount, to);
+		}
+		order.sortRange(viewToModel, work, sortedPrefix, to);
+		for (int i = sortedPrefix; i < sortedCount; i++) {
+			modelToView[viewToModel[i]] = i;
+		}
+		sortedPrefix = to;
+	}
+	
+	/*
+	 * Find the row which would be placed at view, selecting on a copy of the
+	 * rows not placed, so that they are left as they are
+	 */
+	private int select(int view) {
+		System.arraycopy(viewToModel, sortedPrefix, work, sortedPrefix,
+				sortedCount - sortedPrefix);
+		order.select(work, sortedPrefix, sortedCount, view + 1);
+		return work[view];
+	}
+	
+	private void completeSort() {
+		if (sorted && sortedPrefix < sortedCount) {
+			sortTo(sortedCount - 1);
+		}
+	}
+	
+	/*
+	 * Find the children shown by the filter, in sort order. A partial sort is
+	 * completed.
+	 */
+	private void validateShown() {
+		if (shownValid) {
+			return;
+		}
+		int count = children.size();
+		if (shown == null || shown.length < count) {
+			int capacity = capacity(count, shown);
+			shown = new int[capacity];
+			shownIndex = new int[capacity];
+		}
+		completeSort();
+		shownCount = 0;
+		for (int v = 0; v < count; v++) {
+			int m = (!sortable || !sorted || sortedCount != count)
+					? v : convertRowIndexToModel(v);
+			if (isShown(children.get(m))) {
+				shownIndex[m] = shownCount;
+				shown[shownCount++] = m;
+			} else {
+				shownIndex[m] = -1;
+			}
+		}
+		shownValid = true;
+	}
+	
+	private boolean isShown(TreeTableNode child) {
+		if (child instanceof AbstractSortableTreeTableNode) {
+			return ((AbstractSortableTreeTableNode) child).isShown();
+		}
+		return filter.include(child);
+	}
+	
+	/*
+	 * cached keys may be used if nothing has changed since they were loaded
+	 */
+	private boolean keysValid(int count) {
+		return keysCached && order != null && keyedChanges == childChanges
+				&& loadedVersion == getKeyVersion() && order.count() == count;
+	}
+	
+	/*
+	 * The keys were updated for the single child just added or removed
+	 */
+	private void keptKeys() {
+		if (keyedChanges == childChanges - 1) {
+			keyedChanges = childChanges;
+		}
+	}
+	
+	private static int[] identity(int count) {
+		int[] x = new int[count];
+		for (int i = 0; i < count; i++) {
+			x[i] = i;
+		}
+		return x;
+	}
+	
+	/*
+	 * Grow by half again, so that children added one at a time do not
+	 * reallocate on every sort
+	 */
+	private static int capacity(int count, int[] old) {
+		if (old == null) {
+			return count;
+		}
+		return Math.max(count, old.length + (old.length >> 1));
+	}
+	
 	private class Row implements Comparable<Row> {
 		@SuppressWarnings("unchecked")
 		Comparable key;
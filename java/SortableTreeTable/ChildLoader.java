@@ -0,0 +1,37 @@
+/** ChildLoader.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import java.util.List;
+
+import org.jdesktop.swingx.treetable.MutableTreeTableNode;
+
+/**
+ * Supplies the children of an AbstractLazySortableTreeTableNode when they are
+ * first needed.
+ * 
+ * @see AbstractLazySortableTreeTableNode
+ */
+public interface ChildLoader {
+
+	/**
+	 * Count the children of node without creating them. Called at most once
+	 * before the children are loaded, e.g. to decide if node is a leaf.
+	 * 
+	 * @param node
+	 * @return the number of children loadChildren will return
+	 */
+	int countChildren(AbstractLazySortableTreeTableNode node);
+
+	/**
+	 * Create the children of node. Called once, on the Event Dispatch Thread.
+	 * 
+	 * @param node
+	 * @return the children, in model order
+	 */
+	List<? extends MutableTreeTableNode> loadChildren(
+			AbstractLazySortableTreeTableNode node);
+}
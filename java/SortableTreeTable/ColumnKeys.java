@@ -0,0 +1,329 @@
+/** ColumnKeys.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.jdesktop.swingx.treetable.TreeTableNode;
+
+/**
+ * The sort keys of one column for the children of a node, indexed by model
+ * index.<br>
+ * If every non-null value in the column is of the same numeric type (or a
+ * Date) the keys are held unboxed in a long or double array, so that sorting
+ * compares primitives rather than calling compareTo. Otherwise the values are
+ * held as Comparables.
+ * <p>
+ * If a Collator is given and every non-null value is a String, each value is
+ * held as its CollationKey, computed once per load, so that strings sort in
+ * the Collator's locale at the cost of a byte comparison.
+ * <p>
+ * Keys are the sort values of the children, see
+ * {@link AbstractSortableTreeTableNode#getSortValueAt(int)}.
+ * <p>
+ * Nulls are treated as less than non-null values.
+ * <p>
+ * The arrays are kept for the next load, and only grown when needed.
+ */
+final class ColumnKeys {
+
+	static final int OBJECT = 0;
+	static final int LONG = 1;
+	static final int DOUBLE = 2;
+
+	int kind = OBJECT;
+	int count = 0;
+	Object[] objects;
+	long[] longs;
+	double[] doubles;
+	boolean[] nulls;
+	// class of the non-null values when kind is primitive
+	private Class<?> type;
+	// when the objects are CollationKeys, the collator they came from
+	private Collator collator;
+
+	/**
+	 * Load the keys of column from children
+	 * 
+	 * @param collator - to compare String values with, or null
+	 * @return number of arrays reused rather than allocated
+	 */
+	int load(List<? extends TreeTableNode> children, int column,
+			Collator collator) {
+		int previous = count;
+		count = children.size();
+		int saved = 0;
+		if (objects == null || objects.length < count) {
+			objects = new Object[count];
+		} else {
+			saved++;
+			if (previous > count) {
+				// do not hold on to the values of removed children
+				Arrays.fill(objects, count, previous, null);
+			}
+		}
+		int x = 0;
+		for (TreeTableNode node : children) {
+			objects[x++] = AbstractSortableTreeTableNode.getSortValue(node,
+					column);
+		}
+		type = commonClass(objects, count);
+		kind = (type == null) ? OBJECT : kindOf(type);
+		this.collator = null;
+		if (kind != OBJECT) {
+			saved += unbox();
+		} else if (type == String.class && collator != null) {
+			collate(collator);
+		}
+		return saved;
+	}
+
+	/**
+	 * Replace a single key, e.g. after the value of one child changed. If the
+	 * new value does not fit the primitive keys, all keys revert to objects.
+	 */
+	void set(int modelIndex, Object value) {
+		if (kind != OBJECT) {
+			if (value == null) {
+				nulls[modelIndex] = true;
+				return;
+			}
+			if (value.getClass() == type) {
+				nulls[modelIndex] = false;
+				if (kind == LONG) {
+					longs[modelIndex] = toLong(value);
+				} else {
+					doubles[modelIndex] = ((Number) value).doubleValue();
+				}
+				return;
+			}
+			box();
+		} else if (collator != null) {
+			if (value == null || value instanceof String) {
+				objects[modelIndex] = collator.getCollationKey((String) value);
+				return;
+			}
+			uncollate();
+		}
+		objects[modelIndex] = value;
+	}
+
+	/**
+	 * Insert a key for a child inserted at modelIndex, moving the following
+	 * keys up one
+	 */
+	void insert(int modelIndex, Object value) {
+		int tail = count - modelIndex;
+		if (objects.length <= count) {
+			objects = Arrays.copyOf(objects, count + (count >> 1) + 1);
+		}
+		System.arraycopy(objects, modelIndex, objects, modelIndex + 1, tail);
+		objects[modelIndex] = null;
+		if (kind != OBJECT) {
+			if (nulls.length <= count) {
+				nulls = Arrays.copyOf(nulls, objects.length);
+			}
+			System.arraycopy(nulls, modelIndex, nulls, modelIndex + 1, tail);
+			if (kind == LONG) {
+				if (longs.length <= count) {
+					longs = Arrays.copyOf(longs, objects.length);
+				}
+				System.arraycopy(longs, modelIndex, longs, modelIndex + 1, tail);
+			} else {
+				if (doubles.length <= count) {
+					doubles = Arrays.copyOf(doubles, objects.length);
+				}
+				System.arraycopy(doubles, modelIndex, doubles, modelIndex + 1,
+						tail);
+			}
+		}
+		count++;
+		set(modelIndex, value);
+	}
+
+	/**
+	 * Remove the key of the child removed from modelIndex, moving the
+	 * following keys down one
+	 */
+	void remove(int modelIndex) {
+		int tail = count - modelIndex - 1;
+		System.arraycopy(objects, modelIndex + 1, objects, modelIndex, tail);
+		if (kind != OBJECT) {
+			System.arraycopy(nulls, modelIndex + 1, nulls, modelIndex, tail);
+			if (kind == LONG) {
+				System.arraycopy(longs, modelIndex + 1, longs, modelIndex, tail);
+			} else {
+				System.arraycopy(doubles, modelIndex + 1, doubles, modelIndex,
+						tail);
+			}
+		}
+		count--;
+		objects[count] = null;
+	}
+
+	/**
+	 * Compare the keys at two model indexes, ascending
+	 */
+	@SuppressWarnings("unchecked")
+	int compare(int a, int b) {
+		switch (kind) {
+		case LONG:
+			if (nulls[a] || nulls[b]) {
+				return compareNulls(nulls[a], nulls[b]);
+			}
+			long la = longs[a];
+			long lb = longs[b];
+			return (la < lb) ? -1 : ((la == lb) ? 0 : 1);
+		case DOUBLE:
+			if (nulls[a] || nulls[b]) {
+				return compareNulls(nulls[a], nulls[b]);
+			}
+			return Double.compare(doubles[a], doubles[b]);
+		default:
+			Object ka = objects[a];
+			Object kb = objects[b];
+			if (ka == null || kb == null) {
+				return compareNulls(ka == null, kb == null);
+			}
+			return ((Comparable) ka).compareTo(kb);
+		}
+	}
+
+	// ======================================================= private methods
+
+	private static int compareNulls(boolean aNull, boolean bNull) {
+		if (aNull) {
+			return (bNull) ? 0 : -1;
+		}
+		return 1;
+	}
+
+	/*
+	 * All non-null values must be the same class for a primitive kind, as
+	 * the boxed types do not compare with each other
+	 */
+	private static Class<?> commonClass(Object[] values, int count) {
+		Class<?> c = null;
+		for (int i = 0; i < count; i++) {
+			Object v = values[i];
+			if (v == null) {
+				continue;
+			}
+			if (c == null) {
+				c = v.getClass();
+			} else if (v.getClass() != c) {
+				return null;
+			}
+		}
+		return c;
+	}
+
+	private static int kindOf(Class<?> c) {
+		if (c == Integer.class || c == Long.class || c == Short.class
+				|| c == Byte.class || c == Date.class) {
+			return LONG;
+		}
+		if (c == Double.class || c == Float.class) {
+			return DOUBLE;
+		}
+		return OBJECT;
+	}
+
+	private static long toLong(Object value) {
+		if (value instanceof Date) {
+			return ((Date) value).getTime();
+		}
+		return ((Number) value).longValue();
+	}
+
+	private int unbox() {
+		int saved = 0;
+		if (nulls == null || nulls.length < count) {
+			nulls = new boolean[count];
+		} else {
+			saved++;
+		}
+		if (kind == LONG) {
+			if (longs == null || longs.length < count) {
+				longs = new long[count];
+			} else {
+				saved++;
+			}
+		} else {
+			if (doubles == null || doubles.length < count) {
+				doubles = new double[count];
+			} else {
+				saved++;
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			Object v = objects[i];
+			nulls[i] = (v == null);
+			if (v == null) {
+				// no key
+			} else if (kind == LONG) {
+				longs[i] = toLong(v);
+			} else {
+				doubles[i] = ((Number) v).doubleValue();
+			}
+		}
+		// the objects array stays as a buffer, without holding the values
+		Arrays.fill(objects, 0, count, null);
+		return saved;
+	}
+
+	/*
+	 * Collator is not thread safe, and nodes may be sorted in parallel, so
+	 * each load works with its own copy
+	 */
+	private void collate(Collator collator) {
+		this.collator = (Collator) collator.clone();
+		for (int i = 0; i < count; i++) {
+			if (objects[i] != null) {
+				objects[i] = this.collator.getCollationKey((String) objects[i]);
+			}
+		}
+	}
+
+	private void uncollate() {
+		for (int i = 0; i < count; i++) {
+			if (objects[i] != null) {
+				objects[i] = ((CollationKey) objects[i]).getSourceString();
+			}
+		}
+		collator = null;
+	}
+
+	private void box() {
+		for (int i = 0; i < count; i++) {
+			objects[i] = (nulls[i]) ? null : boxed(i);
+		}
+		kind = OBJECT;
+		type = null;
+	}
+
+	private Object boxed(int i) {
+		if (type == Integer.class) {
+			return Integer.valueOf((int) longs[i]);
+		} else if (type == Long.class) {
+			return Long.valueOf(longs[i]);
+		} else if (type == Short.class) {
+			return Short.valueOf((short) longs[i]);
+		} else if (type == Byte.class) {
+			return Byte.valueOf((byte) longs[i]);
+		} else if (type == Date.class) {
+			return new Date(longs[i]);
+		} else if (type == Float.class) {
+			return Float.valueOf((float) doubles[i]);
+		} else {
+			return Double.valueOf(doubles[i]);
+		}
+	}
+}
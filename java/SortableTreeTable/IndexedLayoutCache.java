@@ -0,0 +1,85 @@
+/** IndexedLayoutCache.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import javax.swing.event.TreeModelEvent;
+import javax.swing.tree.FixedHeightLayoutCache;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
+
+/**
+ * A FixedHeightLayoutCache which looks rows up in a {@link VisibleRows}
+ * index, rather than walking its expanded nodes for each. The index is
+ * patched with each expansion, collapse and model event the cache is sent,
+ * once the cache has handled it.<br>
+ * Installed by {@link IndexedTreeUI}, so the rows are looked up in the index
+ * by the tree and the TreeTable alike.
+ */
+final class IndexedLayoutCache extends FixedHeightLayoutCache {
+
+	private final VisibleRows rows = new VisibleRows(this);
+
+	@Override
+	public TreePath getPathForRow(int row) {
+		return rows.getPath(row);
+	}
+
+	@Override
+	public int getRowForPath(TreePath path) {
+		return (path == null) ? -1 : rows.getRow(path);
+	}
+
+	@Override
+	public void setModel(TreeModel newModel) {
+		super.setModel(newModel);
+		rows.invalidate();
+	}
+
+	@Override
+	public void setRootVisible(boolean rootVisible) {
+		super.setRootVisible(rootVisible);
+		rows.invalidate();
+	}
+
+	@Override
+	public void setExpandedState(TreePath path, boolean isExpanded) {
+		super.setExpandedState(path, isExpanded);
+		if (path == null) {
+			return;
+		}
+		if (isExpanded) {
+			rows.expanded(path);
+		} else {
+			rows.collapsed(path);
+		}
+	}
+
+	@Override
+	public void treeNodesInserted(TreeModelEvent e) {
+		super.treeNodesInserted(e);
+		rows.treeNodesInserted(e);
+	}
+
+	@Override
+	public void treeNodesRemoved(TreeModelEvent e) {
+		super.treeNodesRemoved(e);
+		rows.treeNodesRemoved(e);
+	}
+
+	@Override
+	public void treeStructureChanged(TreeModelEvent e) {
+		super.treeStructureChanged(e);
+		rows.treeStructureChanged(e);
+	}
+
+	/**
+	 * @return number of rows laid out by the cache itself, against which the
+	 * index is checked
+	 */
+	int getLayoutRowCount() {
+		return super.getRowCount();
+	}
+}
@@ -0,0 +1,36 @@
+/** IndexedTreeUI.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import javax.swing.plaf.basic.BasicTreeUI;
+import javax.swing.tree.AbstractLayoutCache;
+
+/**
+ * The UI of the tree rendering the hierarchical column of a
+ * SortableTreeTable whose rows are indexed. A large model with a fixed row
+ * height is laid out by an {@link IndexedLayoutCache}; other trees as
+ * BasicTreeUI lays them out.
+ *
+ * @see SortableTreeTableModel#setRowIndexed(boolean)
+ */
+final class IndexedTreeUI extends BasicTreeUI {
+
+	@Override
+	protected AbstractLayoutCache createLayoutCache() {
+		if (isLargeModel() && getRowHeight() > 0) {
+			return new IndexedLayoutCache();
+		}
+		return super.createLayoutCache();
+	}
+
+	/**
+	 * @return true if rows are looked up in the index, which needs a large
+	 * model and a fixed row height
+	 */
+	boolean isIndexed() {
+		return treeState instanceof IndexedLayoutCache;
+	}
+}
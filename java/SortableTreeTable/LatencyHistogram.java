@@ -0,0 +1,111 @@
+/** LatencyHistogram.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import java.util.Arrays;
+
+/**
+ * Counts of durations in nanoseconds, in buckets of four per power of two,
+ * so a percentile is read to within a quarter of its value in a fixed 2K of
+ * memory, however many durations are recorded.
+ */
+final class LatencyHistogram {
+
+	// bits of each duration below its leading bit used to pick a bucket
+	private static final int SUB_BITS = 2;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	private final long[] counts = new long[64 * SUB_BUCKETS];
+	private long count = 0;
+	private long total = 0;
+	private long max = 0;
+
+	synchronized void record(long nanos) {
+		if (nanos < 0) {
+			// clock adjusted
+			nanos = 0;
+		}
+		counts[bucket(nanos)]++;
+		count++;
+		total += nanos;
+		if (nanos > max) {
+			max = nanos;
+		}
+	}
+
+	synchronized long getCount() {
+		return count;
+	}
+
+	synchronized long getTotal() {
+		return total;
+	}
+
+	synchronized long getMax() {
+		return max;
+	}
+
+	synchronized double getMean() {
+		return (count == 0) ? 0 : (double) total / count;
+	}
+
+	/**
+	 * @param fraction - e.g. 0.99 for the 99th percentile
+	 * @return the duration which fraction of those recorded do not exceed,
+	 * rounded up to the top of its bucket, or 0 if none are recorded
+	 */
+	synchronized long getPercentile(double fraction) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(fraction * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(highest(i), max);
+			}
+		}
+		return max;
+	}
+
+	synchronized void reset() {
+		Arrays.fill(counts, 0);
+		count = 0;
+		total = 0;
+		max = 0;
+	}
+
+	// ======================================================= private methods
+
+	/*
+	 * Values below SUB_BUCKETS have a bucket each. Above, the bucket is the
+	 * position of the leading bit and the SUB_BITS bits after it.
+	 */
+	private static int bucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int log = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (log - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return ((log - SUB_BITS + 1) << SUB_BITS) + sub;
+	}
+
+	/*
+	 * highest value which falls in bucket
+	 */
+	private static long highest(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = (bucket >> SUB_BITS) - 1;
+		if (shift > 63 - SUB_BITS - 1) {
+			return Long.MAX_VALUE;
+		}
+		long low = (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+		return low + (1L << shift) - 1;
+	}
+}
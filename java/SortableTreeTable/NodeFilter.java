@@ -0,0 +1,22 @@
+/** NodeFilter.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import org.jdesktop.swingx.treetable.TreeTableNode;
+
+/**
+ * Decides which nodes are shown by a filtered SortableTreeTableModel.
+ * 
+ * @see SortableTreeTableModel#setFilter(NodeFilter)
+ */
+public interface NodeFilter {
+
+	/**
+	 * @param node
+	 * @return true if node is to be shown
+	 */
+	boolean include(TreeTableNode node);
+}
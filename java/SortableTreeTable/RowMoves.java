@@ -0,0 +1,118 @@
+/** RowMoves.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import java.util.List;
+
+/**
+ * The children of a node which changed position in a sort, relative to the
+ * other children.<br>
+ * The children kept in place are a longest increasing subsequence of the new
+ * view indexes taken in the old view order. Every other child is treated as
+ * removed from its old view index and inserted again at its new one, which is
+ * the least number of moves that turns the old order into the new.
+ */
+final class RowMoves {
+
+	// old view indexes of the moved children, ascending
+	final int[] removed;
+	final Object[] removedChildren;
+	// new view indexes of the moved children, ascending
+	final int[] added;
+	final Object[] addedChildren;
+	// by new view index
+	private final boolean[] moved;
+
+	/**
+	 * @param oldOrder - model index of each child, by old view index
+	 * @param newView - new view index of each child, by model index
+	 * @param newOrder - model index of each child, by new view index
+	 * @param children - child by model index
+	 * @param count - number of children
+	 */
+	RowMoves(int[] oldOrder, int[] newView, int[] newOrder,
+			List<?> children, int count) {
+		boolean[] kept = keep(oldOrder, newView, count);
+		int n = 0;
+		for (int i = 0; i < count; i++) {
+			if (!kept[i]) {
+				n++;
+			}
+		}
+		removed = new int[n];
+		removedChildren = new Object[n];
+		added = new int[n];
+		addedChildren = new Object[n];
+		moved = new boolean[count];
+		int x = 0;
+		for (int i = 0; i < count; i++) {
+			if (!kept[i]) {
+				removed[x] = i;
+				removedChildren[x++] = children.get(oldOrder[i]);
+				moved[newView[oldOrder[i]]] = true;
+			}
+		}
+		x = 0;
+		for (int i = 0; i < count; i++) {
+			if (moved[i]) {
+				added[x] = i;
+				addedChildren[x++] = children.get(newOrder[i]);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of children moved
+	 */
+	int count() {
+		return removed.length;
+	}
+
+	/**
+	 * @return true if the child at viewIndex in the new order was moved
+	 */
+	boolean isMoved(int viewIndex) {
+		return moved[viewIndex];
+	}
+
+	// ======================================================= private methods
+
+	/*
+	 * Patience sort over the new view indexes in old view order, keeping the
+	 * predecessor of each entry so that one longest run can be traced back.
+	 * Returns the children kept, by old view index.
+	 */
+	private static boolean[] keep(int[] oldOrder, int[] newView, int count) {
+		// old view index of the last entry of each run length
+		int[] tails = new int[count];
+		int[] previous = new int[count];
+		int length = 0;
+		for (int i = 0; i < count; i++) {
+			int v = newView[oldOrder[i]];
+			int low = 0;
+			int high = length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (newView[oldOrder[tails[mid]]] < v) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			previous[i] = (low == 0) ? -1 : tails[low - 1];
+			tails[low] = i;
+			if (low == length) {
+				length++;
+			}
+		}
+		boolean[] kept = new boolean[count];
+		for (int i = (length == 0) ? -1 : tails[length - 1]; i != -1;
+				i = previous[i]) {
+			kept[i] = true;
+		}
+		return kept;
+	}
+}
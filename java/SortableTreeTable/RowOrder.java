@@ -0,0 +1,315 @@
+/** RowOrder.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import java.text.Collator;
+import java.util.List;
+
+import org.jdesktop.swingx.decorator.SortKey;
+import org.jdesktop.swingx.treetable.TreeTableNode;
+
+/**
+ * The order of the children of a node: the columns they are sorted by, each
+ * with its direction, and the keys of each column. Children are compared by
+ * model index, on each column in turn, in the same way as the Row class of
+ * AbstractSortableTreeTableNode; children equal on all columns keep model
+ * order. String columns are compared by the collator, if any.
+ * <p>
+ * It holds no reference to the node, so a sort may be computed from a
+ * snapshot of the keys on another thread.
+ */
+final class RowOrder {
+
+	int[] columns;
+	boolean[] ascending;
+	ColumnKeys[] keys;
+	Collator collator;
+	// children compared so far, for metrics, counted only while counting
+	long comparisons = 0;
+	boolean counting = false;
+
+	RowOrder(List<SortKey> sortKeys, Collator collator) {
+		setSortKeys(sortKeys, collator);
+	}
+
+	/**
+	 * Set the columns to sort on. The key buffers are kept, and only
+	 * reallocated if the number of columns changes.
+	 */
+	void setSortKeys(List<SortKey> sortKeys, Collator collator) {
+		this.collator = collator;
+		int n = sortKeys.size();
+		if (keys == null || keys.length != n) {
+			ColumnKeys[] old = keys;
+			columns = new int[n];
+			ascending = new boolean[n];
+			keys = new ColumnKeys[n];
+			for (int k = 0; k < n; k++) {
+				keys[k] = (old != null && k < old.length) 
+						? old[k] : new ColumnKeys();
+			}
+		}
+		for (int k = 0; k < n; k++) {
+			SortKey key = sortKeys.get(k);
+			columns[k] = key.getColumn();
+			ascending[k] = key.getSortOrder().isAscending();
+		}
+	}
+
+	/**
+	 * @return true if sortKeys are on the same columns, in the same order,
+	 * whatever their directions, and compared by the same collator
+	 */
+	boolean hasColumns(List<SortKey> sortKeys, Collator collator) {
+		if (sortKeys.size() != columns.length || collator != this.collator) {
+			return false;
+		}
+		for (int k = 0; k < columns.length; k++) {
+			if (sortKeys.get(k).getColumn() != columns[k]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if sortKeys are on the same columns, with every direction
+	 * reversed
+	 */
+	boolean isReversedBy(List<SortKey> sortKeys, Collator collator) {
+		if (!hasColumns(sortKeys, collator)) {
+			return false;
+		}
+		for (int k = 0; k < columns.length; k++) {
+			if (sortKeys.get(k).getSortOrder().isAscending() == ascending[k]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * number of children the keys were loaded from
+	 */
+	int count() {
+		return keys[0].count;
+	}
+
+	/**
+	 * Load the keys of each sort column from children
+	 * 
+	 * @return number of arrays reused rather than allocated
+	 */
+	int load(List<? extends TreeTableNode> children) {
+		int saved = 0;
+		for (int k = 0; k < keys.length; k++) {
+			saved += keys[k].load(children, columns[k], collator);
+		}
+		return saved;
+	}
+
+	/**
+	 * Update the key of a single child for column
+	 * 
+	 * @return false if column is not sorted on
+	 */
+	boolean set(int modelIndex, TreeTableNode child, int column) {
+		boolean found = false;
+		for (int k = 0; k < keys.length; k++) {
+			if (columns[k] == column) {
+				keys[k].set(modelIndex,
+						AbstractSortableTreeTableNode.getSortValue(child, column));
+				found = true;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Insert the keys of a child inserted at modelIndex
+	 */
+	void insert(int modelIndex, TreeTableNode child) {
+		for (int k = 0; k < keys.length; k++) {
+			keys[k].insert(modelIndex, AbstractSortableTreeTableNode
+					.getSortValue(child, columns[k]));
+		}
+	}
+
+	/**
+	 * Remove the keys of the child removed from modelIndex
+	 */
+	void remove(int modelIndex) {
+		for (int k = 0; k < keys.length; k++) {
+			keys[k].remove(modelIndex);
+		}
+	}
+
+	/**
+	 * compare two children by model index, on each column in turn
+	 */
+	int compare(int a, int b) {
+		int result = compareKeys(a, b);
+		if (result != 0) {
+			return result;
+		}
+		// revert to model order
+		return a - b;
+	}
+
+	/**
+	 * Reverse an order sorted on the same columns in the opposite directions,
+	 * rather than sorting again. Children equal on all columns are put back
+	 * in model order.
+	 * 
+	 * @param src - the view to model order sorted in the opposite directions
+	 * @param dest - receives the view to model order
+	 */
+	void reverse(int[] src, int[] dest, int count) {
+		for (int i = 0; i < count; i++) {
+			dest[i] = src[count - 1 - i];
+		}
+		int start = 0;
+		for (int i = 1; i <= count; i++) {
+			if (i < count && compareKeys(dest[start], dest[i]) == 0) {
+				continue;
+			}
+			for (int low = start, high = i - 1; low < high; low++, high--) {
+				int t = dest[low];
+				dest[low] = dest[high];
+				dest[high] = t;
+			}
+			start = i;
+		}
+	}
+
+	/**
+	 * Sort model indexes 0 to count - 1 into dest.
+	 * 
+	 * @param dest - receives the view to model order
+	 * @param work - work array, at least count long
+	 */
+	void sort(int[] dest, int[] work, int count) {
+		for (int i = 0; i < count; i++) {
+			dest[i] = i;
+			work[i] = i;
+		}
+		mergeSort(work, dest, 0, count);
+	}
+
+	/**
+	 * Sort the model indexes in dest between from and to, in place
+	 * 
+	 * @param work - work array, at least to long
+	 */
+	void sortRange(int[] dest, int[] work, int from, int to) {
+		System.arraycopy(dest, from, work, from, to - from);
+		mergeSort(work, dest, from, to);
+	}
+
+	/**
+	 * Partially order the model indexes in a between from and to, so that
+	 * those before k are the lowest, in no particular order. As no two
+	 * children compare equal, they are exactly the children which a full
+	 * sort would place there.
+	 */
+	void select(int[] a, int from, int to, int k) {
+		int target = k - 1;
+		int low = from;
+		int high = to - 1;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			// median of three as pivot
+			if (compare(a[mid], a[low]) < 0) {
+				swap(a, mid, low);
+			}
+			if (compare(a[high], a[low]) < 0) {
+				swap(a, high, low);
+			}
+			if (compare(a[high], a[mid]) < 0) {
+				swap(a, high, mid);
+			}
+			int pivot = a[mid];
+			int i = low;
+			int j = high;
+			while (i <= j) {
+				while (compare(a[i], pivot) < 0) {
+					i++;
+				}
+				while (compare(a[j], pivot) > 0) {
+					j--;
+				}
+				if (i <= j) {
+					swap(a, i++, j--);
+				}
+			}
+			if (target <= j) {
+				high = j;
+			} else if (target >= i) {
+				low = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	// ======================================================= private methods
+
+	private static void swap(int[] a, int i, int j) {
+		int t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	}
+
+	/*
+	 * compare on each column in turn, without reverting to model order
+	 */
+	private int compareKeys(int a, int b) {
+		if (counting) {
+			comparisons++;
+		}
+		for (int k = 0; k < keys.length; k++) {
+			int result = keys[k].compare(a, b);
+			if (result != 0) {
+				return (ascending[k]) ? result : -result;
+			}
+		}
+		return 0;
+	}
+
+	/*
+	 * Merge sort of model indexes from src into dest, between low and high.
+	 * src and dest must hold the same indexes on entry.
+	 */
+	private void mergeSort(int[] src, int[] dest, int low, int high) {
+		int length = high - low;
+		if (length < 7) {
+			for (int i = low; i < high; i++) {
+				for (int j = i; j > low && compare(dest[j - 1], dest[j]) > 0;
+						j--) {
+					int t = dest[j];
+					dest[j] = dest[j - 1];
+					dest[j - 1] = t;
+				}
+			}
+			return;
+		}
+		int mid = (low + high) >>> 1;
+		mergeSort(dest, src, low, mid);
+		mergeSort(dest, src, mid, high);
+		// already in order
+		if (compare(src[mid - 1], src[mid]) <= 0) {
+			System.arraycopy(src, low, dest, low, length);
+			return;
+		}
+		for (int i = low, p = low, q = mid; i < high; i++) {
+			if (q >= high || (p < mid && compare(src[p], src[q]) <= 0)) {
+				dest[i] = src[p++];
+			} else {
+				dest[i] = src[q++];
+			}
+		}
+	}
+}
@@ -0,0 +1,288 @@
+/** SortMetrics.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Records the timings reported to a SortMetricsListener as latency
+ * histograms, and exposes them through JMX, e.g. to JConsole:
+ * <pre>
+ * SortMetrics metrics = new SortMetrics();
+ * metrics.register("portfolio");
+ * model.setMetricsListener(metrics);
+ * </pre>
+ * A single instance may be shared by several models.
+ */
+public class SortMetrics implements SortMetricsListener, SortMetricsMBean {
+
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
+	private final LatencyHistogram sorts = new LatencyHistogram();
+	private final LatencyHistogram structureChanges = new LatencyHistogram();
+	private final LatencyHistogram nodesChanged = new LatencyHistogram();
+	private final LatencyHistogram nodesInserted = new LatencyHistogram();
+	private final LatencyHistogram nodesRemoved = new LatencyHistogram();
+	private final LatencyHistogram reExpands = new LatencyHistogram();
+	private final LatencyHistogram inserts = new LatencyHistogram();
+	private final LatencyHistogram removes = new LatencyHistogram();
+	private final AtomicLong nodesSorted = new AtomicLong();
+	private final AtomicLong rowsCompared = new AtomicLong();
+	private final AtomicLong nodesChangedRows = new AtomicLong();
+	private final AtomicLong nodesInsertedRows = new AtomicLong();
+	private final AtomicLong nodesRemovedRows = new AtomicLong();
+	private final AtomicLong pathsReExpanded = new AtomicLong();
+	private ObjectName objectName = null;
+
+	// =========================================================== public api
+
+	/**
+	 * Register with the platform MBeanServer, as
+	 * org.codelutin.jtimer.ui.treetable.sorting:type=SortMetrics,name=name
+	 *
+	 * @param name - distinguishes the TreeTable measured
+	 * @return the name registered under
+	 * @throws JMException if a bean is already registered under the name
+	 */
+	public synchronized ObjectName register(String name) throws JMException {
+		ObjectName on = new ObjectName(getClass().getPackage().getName()
+				+ ":type=SortMetrics,name=" + ObjectName.quote(name));
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		server.registerMBean(this, on);
+		objectName = on;
+		return on;
+	}
+
+	/**
+	 * Unregister from the platform MBeanServer, if registered
+	 *
+	 * @throws JMException
+	 */
+	public synchronized void unregister() throws JMException {
+		if (objectName == null) {
+			return;
+		}
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		objectName = null;
+	}
+
+	// ================================================== SortMetricsListener
+
+	public void sorted(int nodes, long comparisons, long nanos) {
+		sorts.record(nanos);
+		nodesSorted.addAndGet(nodes);
+		rowsCompared.addAndGet(comparisons);
+	}
+
+	public void eventFired(Event event, int rows, long nanos) {
+		switch (event) {
+		case STRUCTURE_CHANGED:
+			structureChanges.record(nanos);
+			break;
+		case NODES_CHANGED:
+			nodesChanged.record(nanos);
+			nodesChangedRows.addAndGet(rows);
+			break;
+		case NODES_INSERTED:
+			nodesInserted.record(nanos);
+			nodesInsertedRows.addAndGet(rows);
+			break;
+		case NODES_REMOVED:
+			nodesRemoved.record(nanos);
+			nodesRemovedRows.addAndGet(rows);
+			break;
+		}
+	}
+
+	public void reExpanded(int paths, long nanos) {
+		reExpands.record(nanos);
+		pathsReExpanded.addAndGet(paths);
+	}
+
+	public void inserted(long nanos) {
+		inserts.record(nanos);
+	}
+
+	public void removed(long nanos) {
+		removes.record(nanos);
+	}
+
+	// ===================================================== SortMetricsMBean
+
+	public long getSortCount() {
+		return sorts.getCount();
+	}
+
+	public double getSortMeanMillis() {
+		return sorts.getMean() / NANOS_PER_MILLI;
+	}
+
+	public double getSort99thPercentileMillis() {
+		return sorts.getPercentile(0.99) / NANOS_PER_MILLI;
+	}
+
+	public double getSortMaxMillis() {
+		return sorts.getMax() / NANOS_PER_MILLI;
+	}
+
+	public long getNodesSorted() {
+		return nodesSorted.get();
+	}
+
+	public long getRowsCompared() {
+		return rowsCompared.get();
+	}
+
+	public long getStructureChangedCount() {
+		return structureChanges.getCount();
+	}
+
+	public double getStructureChangedMeanMillis() {
+		return structureChanges.getMean() / NANOS_PER_MILLI;
+	}
+
+	public double getStructureChanged99thPercentileMillis() {
+		return structureChanges.getPercentile(0.99) / NANOS_PER_MILLI;
+	}
+
+	public double getStructureChangedMaxMillis() {
+		return structureChanges.getMax() / NANOS_PER_MILLI;
+	}
+
+	public long getNodesChangedCount() {
+		return nodesChanged.getCount();
+	}
+
+	public double getNodesChangedMeanMillis() {
+		return nodesChanged.getMean() / NANOS_PER_MILLI;
+	}
+
+	public double getNodesChanged99thPercentileMillis() {
+		return nodesChanged.getPercentile(0.99) / NANOS_PER_MILLI;
+	}
+
+	public double getNodesChangedMaxMillis() {
+		return nodesChanged.getMax() / NANOS_PER_MILLI;
+	}
+
+	public long getNodesChangedRows() {
+		return nodesChangedRows.get();
+	}
+
+	public long getNodesInsertedCount() {
+		return nodesInserted.getCount();
+	}
+
+	public double getNodesInsertedMeanMillis() {
+		return nodesInserted.getMean() / NANOS_PER_MILLI;
+	}
+
+	public double getNodesInserted99thPercentileMillis() {
+		return nodesInserted.getPercentile(0.99) / NANOS_PER_MILLI;
+	}
+
+	public double getNodesInsertedMaxMillis() {
+		return nodesInserted.getMax() / NANOS_PER_MILLI;
+	}
+
+	public long getNodesInsertedRows() {
+		return nodesInsertedRows.get();
+	}
+
+	public long getNodesRemovedCount() {
+		return nodesRemoved.getCount();
+	}
+
+	public double getNodesRemovedMeanMillis() {
+		return nodesRemoved.getMean() / NANOS_PER_MILLI;
+	}
+
+	public double getNodesRemoved99thPercentileMillis() {
+		return nodesRemoved.getPercentile(0.99) / NANOS_PER_MILLI;
+	}
+
+	public double getNodesRemovedMaxMillis() {
+		return nodesRemoved.getMax() / NANOS_PER_MILLI;
+	}
+
+	public long getNodesRemovedRows() {
+		return nodesRemovedRows.get();
+	}
+
+	public long getReExpandCount() {
+		return reExpands.getCount();
+	}
+
+	public double getReExpandMeanMillis() {
+		return reExpands.getMean() / NANOS_PER_MILLI;
+	}
+
+	public double getReExpand99thPercentileMillis() {
+		return reExpands.getPercentile(0.99) / NANOS_PER_MILLI;
+	}
+
+	public double getReExpandMaxMillis() {
+		return reExpands.getMax() / NANOS_PER_MILLI;
+	}
+
+	public long getPathsReExpanded() {
+		return pathsReExpanded.get();
+	}
+
+	public long getInsertCount() {
+		return inserts.getCount();
+	}
+
+	public double getInsertMeanMillis() {
+		return inserts.getMean() / NANOS_PER_MILLI;
+	}
+
+	public double getInsert99thPercentileMillis() {
+		return inserts.getPercentile(0.99) / NANOS_PER_MILLI;
+	}
+
+	public double getInsertMaxMillis() {
+		return inserts.getMax() / NANOS_PER_MILLI;
+	}
+
+	public long getRemoveCount() {
+		return removes.getCount();
+	}
+
+	public double getRemoveMeanMillis() {
+		return removes.getMean() / NANOS_PER_MILLI;
+	}
+
+	public double getRemove99thPercentileMillis() {
+		return removes.getPercentile(0.99) / NANOS_PER_MILLI;
+	}
+
+	public double getRemoveMaxMillis() {
+		return removes.getMax() / NANOS_PER_MILLI;
+	}
+
+	public void reset() {
+		sorts.reset();
+		structureChanges.reset();
+		nodesChanged.reset();
+		nodesInserted.reset();
+		nodesRemoved.reset();
+		reExpands.reset();
+		inserts.reset();
+		removes.reset();
+		nodesSorted.set(0);
+		rowsCompared.set(0);
+		nodesChangedRows.set(0);
+		nodesInsertedRows.set(0);
+		nodesRemovedRows.set(0);
+		pathsReExpanded.set(0);
+	}
+}
@@ -0,0 +1,67 @@
+/** SortMetricsListener.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+/**
+ * Told how long each sort, event and re-expansion of a
+ * SortableTreeTableModel took, to find where the TreeTable spends its time.
+ * <br>
+ * Methods are called on the thread doing the work, normally the Event
+ * Dispatch Thread, and should return quickly.
+ *
+ * @see SortableTreeTableModel#setMetricsListener(SortMetricsListener)
+ * @see SortMetrics
+ */
+public interface SortMetricsListener {
+
+	/**
+	 * Kind of event fired to the TreeTable
+	 */
+	enum Event {
+		STRUCTURE_CHANGED, NODES_CHANGED, NODES_INSERTED, NODES_REMOVED
+	}
+
+	/**
+	 * A node and its descendants were sorted
+	 *
+	 * @param nodes - number of nodes whose children were sorted
+	 * @param comparisons - number of times two children were compared
+	 * @param nanos - elapsed time
+	 */
+	void sorted(int nodes, long comparisons, long nanos);
+
+	/**
+	 * An event was fired
+	 *
+	 * @param event
+	 * @param rows - number of children in the event, or 1 for a structure
+	 * change
+	 * @param nanos - time taken by the model's listeners, i.e. the TreeTable
+	 */
+	void eventFired(Event event, int rows, long nanos);
+
+	/**
+	 * Expanded paths were expanded again after a structure change
+	 *
+	 * @param paths - number of paths expanded
+	 * @param nanos - elapsed time
+	 */
+	void reExpanded(int paths, long nanos);
+
+	/**
+	 * A node was inserted through the model, including its sort and events
+	 *
+	 * @param nanos - elapsed time
+	 */
+	void inserted(long nanos);
+
+	/**
+	 * A node was removed through the model, including its sort and events
+	 *
+	 * @param nanos - elapsed time
+	 */
+	void removed(long nanos);
+}
@@ -0,0 +1,104 @@
+/** SortMetricsMBean.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+/**
+ * Management interface of {@link SortMetrics}. Times are in milliseconds;
+ * percentiles are read from histograms, so are within a quarter of the true
+ * value.
+ */
+public interface SortMetricsMBean {
+
+	long getSortCount();
+
+	double getSortMeanMillis();
+
+	double getSort99thPercentileMillis();
+
+	double getSortMaxMillis();
+
+	long getNodesSorted();
+
+	long getRowsCompared();
+
+	long getStructureChangedCount();
+
+	double getStructureChangedMeanMillis();
+
+	double getStructureChanged99thPercentileMillis();
+
+	double getStructureChangedMaxMillis();
+
+	long getNodesChangedCount();
+
+	double getNodesChangedMeanMillis();
+
+	double getNodesChanged99thPercentileMillis();
+
+	double getNodesChangedMaxMillis();
+
+	/**
+	 * @return number of rows in the nodes changed events
+	 */
+	long getNodesChangedRows();
+
+	long getNodesInsertedCount();
+
+	double getNodesInsertedMeanMillis();
+
+	double getNodesInserted99thPercentileMillis();
+
+	double getNodesInsertedMaxMillis();
+
+	/**
+	 * @return number of rows in the nodes inserted events
+	 */
+	long getNodesInsertedRows();
+
+	long getNodesRemovedCount();
+
+	double getNodesRemovedMeanMillis();
+
+	double getNodesRemoved99thPercentileMillis();
+
+	double getNodesRemovedMaxMillis();
+
+	/**
+	 * @return number of rows in the nodes removed events
+	 */
+	long getNodesRemovedRows();
+
+	long getReExpandCount();
+
+	double getReExpandMeanMillis();
+
+	double getReExpand99thPercentileMillis();
+
+	double getReExpandMaxMillis();
+
+	long getPathsReExpanded();
+
+	long getInsertCount();
+
+	double getInsertMeanMillis();
+
+	double getInsert99thPercentileMillis();
+
+	double getInsertMaxMillis();
+
+	long getRemoveCount();
+
+	double getRemoveMeanMillis();
+
+	double getRemove99thPercentileMillis();
+
+	double getRemoveMaxMillis();
+
+	/**
+	 * Clear all counts and histograms
+	 */
+	void reset();
+}
@@ -6,6 +6,18 @@
  */
 package org.codelutin.jtimer.ui.treetable.sorting;
 
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseEvent;
+
+import javax.swing.JTree;
+import javax.swing.table.JTableHeader;
+
+import org.jdesktop.swingx.JXTableHeader;
 import org.jdesktop.swingx.JXTreeTable;
 import org.jdesktop.swingx.decorator.SortOrder;
 import org.jdesktop.swingx.treetable.TreeTableModel;
@@ -16,7 +28,12 @@ import org.jdesktop.swingx.treetable.TreeTableModel;
  * indicator in header.<br>
  * Also hacked to notify model of treetable(this) to allow expanded nodes to
  * be maintained, and sort indicators in header to be set if sort set or 
- * changed programmatically
+ * changed programmatically, and to have the model load lazy nodes as they
+ * are expanded
+ * <p>
+ * Shift-clicking a column header adds that column as a further sort key, or
+ * reverses its order if it is one already. Ctrl-clicking a column header
+ * removes the sort, in place of SwingX's shift-click.
  * <p>
  * Must be used with SortableTreeTableModel
  */
@@ -51,6 +68,7 @@ public class SortableTreeTable extends JXTreeTable {
 		}
 		sortModel = (SortableTreeTableModel)treeModel;
 		addTreeExpansionListener(sortModel);
+		addTreeWillExpandListener(sortModel);
 		sortModel.setTreeTable(this);
 		started = true;
 	}
@@ -77,18 +95,19 @@ public class SortableTreeTable extends JXTreeTable {
 		}
 		int x = convertColumnIndexToModel(colIndex);
 		getSortParams();
-		if (x != sortColumn) {
-			return SortOrder.UNSORTED;
-		} else {
+		if (x == sortColumn) {
 			return order;
 		}
+		return sortModel.getColumnSortOrder(x);
 	}
 	
 	@Override
     public void toggleSortOrder(int columnIndex) {
 		int x = convertColumnIndexToModel(columnIndex);
 		getSortParams();
-		if (x == sortColumn) {
+		if (isShiftDown()) {
+			sortModel.toggleSortKey(x);
+		} else if (x == sortColumn) {
 			sortModel.toggleSortOrder();
 		} else {
 			sortModel.setSortColumn(x);
@@ -111,11 +130,26 @@ public class SortableTreeTable extends JXTreeTable {
 		sortModel = (SortableTreeTableModel)treeModel;
 		if (old != null) {
 			removeTreeExpansionListener(old);
+			removeTreeWillExpandListener(old);
 		}
 		addTreeExpansionListener(sortModel);
+		addTreeWillExpandListener(sortModel);
 		sortModel.setTreeTable(this);
 	}
 	
+    /**
+     * With shift-click as a toggle, for further sort keys
+     */
+    @Override
+    protected JTableHeader createDefaultTableHeader() {
+    	JTableHeader header = super.createDefaultTableHeader();
+    	if (header instanceof JXTableHeader) {
+    		((JXTableHeader) header).setSortGestureRecognizer(
+    				new SortGestureRecognizer());
+    	}
+    	return header;
+    }
+    
     @Override
 	protected boolean isSortable(int columnIndex) {
     	return true;
@@ -126,8 +160,68 @@ public class SortableTreeTable extends JXTreeTable {
     	sortModel.setSortOptions(sortModel.getColumnName(columnIndex), order);
     }
     
+    /**
+     * Has the model put in order the rows in view, if sorted partially
+     * 
+     * @see SortableTreeTableModel#placeRows(int)
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+    	if (sortModel != null) {
+    		Rectangle view = getVisibleRect();
+    		int last = rowAtPoint(new Point(0, view.y + view.height - 1));
+    		sortModel.placeRows((last == -1) ? getRowCount() - 1 : last);
+    	}
+    	super.paintComponent(g);
+    }
+    
+    /**
+     * The look and feel replaces the UI of the tree, so the row index is
+     * installed again, if set
+     * 
+     * @see SortableTreeTableModel#setRowIndexed(boolean)
+     */
+    @Override
+    public void updateUI() {
+    	super.updateUI();
+    	if (sortModel != null && sortModel.isRowIndexed()) {
+    		indexRows(true);
+    	}
+    }
+    
+	// ======================================================= package methods
+    
+    /**
+     * Give the tree rendering the hierarchical column an IndexedTreeUI, so
+     * that its rows are looked up in an index, or its look and feel's UI
+     * back. Called by the model.
+     */
+    void indexRows(boolean indexed) {
+    	int column = getHierarchicalColumn();
+    	if (column < 0) {
+    		return;
+    	}
+    	JTree tree = (JTree) getCellRenderer(0, column);
+    	if (indexed) {
+    		if (!(tree.getUI() instanceof IndexedTreeUI)) {
+    			tree.setUI(new IndexedTreeUI());
+    		}
+    	} else if (tree.getUI() instanceof IndexedTreeUI) {
+    		tree.updateUI();
+    	}
+    }
+    
 	// ======================================================= private methods
 	
+	/*
+	 * JXTable does not pass on the mouse event, so look at the event being
+	 * dispatched
+	 */
+	private boolean isShiftDown() {
+		AWTEvent e = EventQueue.getCurrentEvent();
+		return (e instanceof InputEvent) && ((InputEvent) e).isShiftDown();
+	}
+	
 	private void getSortParams() {
 		if (sortModel == null) {
 			throw new IllegalStateException("No TreeTable Model");
@@ -136,4 +230,17 @@ public class SortableTreeTable extends JXTreeTable {
 		sortColumn = sortModel.getSortColumnIndex();
 	}
 	
+	/*
+	 * SwingX resets the sort on shift-click, which here adds a sort key, so
+	 * reset on ctrl-click instead
+	 */
+	private static class SortGestureRecognizer extends
+			JXTableHeader.SortGestureRecognizer {
+		
+		@Override
+		protected boolean isResetModifier(MouseEvent e) {
+			return (e.getModifiersEx() & InputEvent.CTRL_DOWN_MASK) != 0;
+		}
+	}
+	
 }
@@ -228,8 +228,11 @@ public class SortableTreeTableDemo {
             Object[] data = buildData();
             selectedNode.setUserObject(data);
             cleanUp();
-            // must do manual sort as system does not track data changes
-            model.sort(selectedNode.getParent());
+            // must notify model as system does not track data changes, of
+            // every column as all are edited
+            for (int c = 0; c < model.getColumnCount(); c++) {
+                model.valueChanged(selectedNode, c);
+            }
         }
         
     }
@@ -6,14 +6,40 @@
  */
 package org.codelutin.jtimer.ui.treetable.sorting;
 
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.text.Collator;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.event.TreeExpansionEvent;
 import javax.swing.event.TreeExpansionListener;
+import javax.swing.event.TreeWillExpandListener;
 import javax.swing.table.JTableHeader;
 import javax.swing.tree.TreePath;
 
+import org.codelutin.jtimer.ui.treetable.sorting.SortMetricsListener.Event;
+import org.jdesktop.swingx.decorator.SortKey;
 import org.jdesktop.swingx.decorator.SortOrder;
 import org.jdesktop.swingx.treetable.DefaultTreeTableModel;
 import org.jdesktop.swingx.treetable.MutableTreeTableNode;
@@ -29,6 +55,9 @@ import org.jdesktop.swingx.treetable.TreeTableNode;
  * <br>
  * Note that this does not support sorting the underlying table, as that is
  * meaningless for a TreeTable.<br>
+ * Children may be sorted on further columns where the sort column values are
+ * equal. These secondary sort keys are kept until the sort column is set
+ * again.<br>
  * All nodes wiil have their immediate children sorted seperately, and the
  * process will continue down through each generation, starting from the
  * specified node.<br>
@@ -37,23 +66,89 @@ import org.jdesktop.swingx.treetable.TreeTableNode;
  * that node. The sorts may also be called manually, e.g if sort parameters are
  * loaded before the model is attached to the TreeTable
  * <p>
+ * When many nodes are to be added or removed at once, the changes should be
+ * wrapped in a batch, so that each changed node is sorted and the tree
+ * rebuilt once at the end instead of after every change.
+ * <p>
+ * The children of an AbstractLazySortableTreeTableNode are loaded, and
+ * notified as a structure change, just after it is expanded, or when it is
+ * sorted directly. Sorts of a whole tree skip the nodes not loaded.
+ * <p>
+ * A filter may be set to hide nodes without removing them. Nodes are shown if
+ * they, or any of their descendants, are included by the filter.
+ * <p>
+ * After a sort, children which moved relative to their siblings are notified
+ * as removed and inserted again, so the TreeTable keeps the layout of those
+ * which did not. If too many moved, a structure change is fired instead.<br>
+ * After a sort, only the expanded nodes within the sorted node are expanded
+ * again. If preserve expansion is set, a single node added or removed under a
+ * sorted parent is placed directly in the sort order and notified alone, so
+ * the TreeTable keeps its expanded nodes and nothing is re-expanded.
+ * <p>
  * This class does not handle changes to the values of fields being sorted. This
- * must be done manually by calling sort.
+ * must be done manually by calling valueChanged for a single changed node, or
+ * sort.
  * 
+ * @see #valueChanged(TreeTableNode, int)
+ * @see #beginBatch()
+ * @see #sortAsync(TreeTableNode)
  * @see #sort(TreeTableNode)
  * @see #sort()
  * 
  */
 public class SortableTreeTableModel extends DefaultTreeTableModel 
-							implements TreeExpansionListener {
+							implements TreeExpansionListener, TreeWillExpandListener {
 
 	private String sortColumn = null;
 	private SortOrder sortOrder = SortOrder.UNSORTED;
 	private int columnIndex = -1;
-	private List<TreePath> expanded;
+	// further columns to sort on, after sortColumn
+	private List<SortKey> secondaryKeys = new ArrayList<SortKey>();
+	// all columns sorted on, as passed to the nodes
+	private List<SortKey> sortKeys = Collections.emptyList();
+	// expanded paths in the order they were expanded
+	private Set<TreePath> expanded = new LinkedHashSet<TreePath>();
 	private SortableTreeTable treeTable = null;
 	private JTableHeader header = null;
 	boolean expanding = false;
+	private boolean preserveExpansion = false;
+	// fraction of children which may move before a structure change is fired
+	private double moveThreshold = 0.5;
+	// compares String values, if set
+	private Collator collator;
+	// nodes with this many children are sorted a window at a time
+	private int partialThreshold = 0;
+	private int partialWindow;
+	// decides which nodes are shown, if set
+	private NodeFilter filter;
+	// rows of treeTable looked up in an index, if set
+	private boolean rowIndexed = false;
+	// told the time taken by sorts and events, if set
+	private SortMetricsListener metrics = null;
+	// nodes sorted and children compared by the current sort, counted only
+	// if there is a metrics listener
+	private final AtomicInteger sortedNodes = new AtomicInteger();
+	private final AtomicLong comparisons = new AtomicLong();
+	private ForkJoinPool sortPool = null;
+	private int parallelThreshold = 1000;
+	private Executor sortExecutor = null;
+	// incremented by each sort of the whole tree, and change of the keys, so
+	// older background sorts are dropped
+	private int sortGeneration = 0;
+	// values changed while each background sort is computed, to be placed
+	// again once it is installed
+	private final Map<List<AsyncSort>, Map<TreeTableNode, BitSet>> asyncChanges =
+			new IdentityHashMap<List<AsyncSort>, Map<TreeTableNode, BitSet>>();
+	private int batchDepth = 0;
+	private Set<TreeTableNode> dirty = Collections.newSetFromMap(
+			new IdentityHashMap<TreeTableNode, Boolean>());
+	// changes are held back for up to this many milliseconds, if not 0
+	private int frameInterval = 0;
+	private Timer frameTimer = null;
+	// nodes whose values changed since the last frame, with the columns
+	private Map<TreeTableNode, BitSet> changedRows =
+			new LinkedHashMap<TreeTableNode, BitSet>();
+	private boolean headerChanged = false;
 
 	public SortableTreeTableModel() {
 	}
@@ -77,13 +172,9 @@ public class SortableTreeTableModel extends DefaultTreeTableModel
 	 */
 	public void setSortColumn(String column) {
 		if (column == null) {
-			sortColumn = null;
-			if (sortOrder.isSorted()) {
-				sortOrder = SortOrder.UNSORTED;
-				reset();
-			}
+			clearKeys();
 		} else {
-			setKeys(column, SortOrder.ASCENDING);
+			setKeys(column, SortOrder.ASCENDING, NO_KEYS);
 		}
 	}
 
@@ -96,20 +187,17 @@ public class SortableTreeTableModel extends DefaultTreeTableModel
 	 */
 	public void setSortColumn(int column) {
 		if (column == -1 || column > columnIdentifiers.size() - 1) {
-			sortColumn = null;
-			if (sortOrder.isSorted()) {
-				sortOrder = SortOrder.UNSORTED;
-				reset();
-			}
+			clearKeys();
 		} else {
 			setKeys(columnIdentifiers.get(column).toString(),
-					SortOrder.ASCENDING);
+					SortOrder.ASCENDING, NO_KEYS);
 		}
 	}
 
 	/**
 	 * Set Sort Order. If null, order will be Unsorted.<br>
-	 * If no sort column has been set has no effect.
+	 * If no sort column has been set has no effect. Secondary sort keys are
+	 * kept.
 	 * @param order 
 	 */
 	public void setSortOrder(SortOrder order) {
@@ -119,7 +207,7 @@ public class SortableTreeTableModel extends DefaultTreeTableModel
 		if (order == null) {
 			order = SortOrder.UNSORTED;
 		}
-		setKeys(sortColumn, order);
+		setKeys(sortColumn, order, secondaryKeys);
 	}
 
 	/**
@@ -149,7 +237,84 @@ public class SortableTreeTableModel extends DefaultTreeTableModel
 		if (order == null) {
 			order = SortOrder.UNSORTED;
 		}
-		setKeys(column, order);
+		setKeys(column, order, NO_KEYS);
+	}
+
+	/**
+	 * Set all sort keys. The first key sets the sort column and order, as
+	 * {@link #setSortOptions(String, SortOrder)}; children with equal values
+	 * in it are then ordered by the following keys in turn. If keys is null
+	 * or empty, will be set Unsorted.
+	 * 
+	 * @param keys - column indexes, with their sort order
+	 */
+	public void setSortKeys(List<? extends SortKey> keys) {
+		if (keys == null || keys.isEmpty()) {
+			setSortColumn(null);
+			return;
+		}
+		SortKey first = keys.get(0);
+		int column = first.getColumn();
+		if (column < 0 || column > columnIdentifiers.size() - 1) {
+			throw new IllegalArgumentException("Column " + column
+					+ " not in Column Identifiers");
+		}
+		setKeys(columnIdentifiers.get(column).toString(), first.getSortOrder(),
+				keys.subList(1, keys.size()));
+	}
+
+	/**
+	 * @return all keys being sorted on, sort column first. Empty if unsorted.
+	 */
+	public List<SortKey> getSortKeys() {
+		return Collections.unmodifiableList(sortKeys);
+	}
+
+	/**
+	 * Toggle the sort order of a column among the sort keys. If column is not
+	 * sorted on, it is added as the last key, ascending, or becomes the sort
+	 * column if there is none. Otherwise its order is reversed, leaving the
+	 * other keys as they are.
+	 * 
+	 * @param column - index of column name in columnNames List
+	 */
+	public void toggleSortKey(int column) {
+		if (sortColumn == null || !sortOrder.isSorted()) {
+			setSortColumn(column);
+			return;
+		}
+		if (column == columnIndex) {
+			toggleSortOrder();
+			return;
+		}
+		List<SortKey> keys = new ArrayList<SortKey>(secondaryKeys);
+		boolean found = false;
+		for (int i = 0; i < keys.size(); i++) {
+			SortKey key = keys.get(i);
+			if (key.getColumn() == column) {
+				SortOrder order = (key.getSortOrder().isAscending()) 
+						? SortOrder.DESCENDING : SortOrder.ASCENDING;
+				keys.set(i, new SortKey(order, column));
+				found = true;
+			}
+		}
+		if (!found) {
+			keys.add(new SortKey(SortOrder.ASCENDING, column));
+		}
+		setKeys(sortColumn, sortOrder, keys);
+	}
+
+	/**
+	 * @param column - index of column name in columnNames List
+	 * @return sort order of column, Unsorted if it is not a sort key
+	 */
+	public SortOrder getColumnSortOrder(int column) {
+		for (SortKey key : sortKeys) {
+			if (key.getColumn() == column) {
+				return key.getSortOrder();
+			}
+		}
+		return SortOrder.UNSORTED;
 	}
 
 	/**
@@ -159,6 +324,13 @@ public class SortableTreeTableModel extends DefaultTreeTableModel
 	 * TreeTable data changed.
 	 */
 	public void sort() {
+		supersede(getRoot());
+		if (isDeferred()) {
+			if (getRoot() != null) {
+				dirty.add(getRoot());
+			}
+			return;
+		}
 		if (!sortOrder.isSorted()) {
 			reset();
 		} else {
@@ -171,23 +343,500 @@ public class SortableTreeTableModel extends DefaultTreeTableModel
 	 * sortable. (Although if it is not and neither are any descendants, nothing
 	 * will happen.) Called automatically if a child is added to or removed from
 	 * a node. Usually not necessary to call this directly unless node added
-	 * outside model or data changed.
+	 * outside model or data changed.<br>
+	 * If parent is a lazy node not yet loaded, its children are loaded.
 	 * 
 	 * @param parent - first node to be sorted.
 	 */
 	public void sort(TreeTableNode parent) {
-		boolean reset;
-		if (!sortOrder.isSorted()) {
-			reset = true;
-		} else {
-			reset = false;
+		supersede(parent);
+		if (isDeferred()) {
+			dirty.add(parent);
+			return;
 		}
-		doSort(parent, reset);
-		TreePath path = new TreePath(getPathToRoot(parent));
-		modelSupport.fireTreeStructureChanged(path);
+		resort(parent);
+	}
+
+	/**
+	 * Notifies the model that a value of node has changed. If column is one
+	 * of the sort keys, node is moved to its new position among its siblings
+	 * without re-sorting them, and removed/added events are fired for it. If
+	 * the node keeps its position, or the column is not sorted on, only a path
+	 * changed event is fired.
+	 * 
+	 * @param node - the node whose value changed
+	 * @param column - index of the column which changed
+	 */
+	public void valueChanged(TreeTableNode node, int column) {
+		TreeTableNode parent = node.getParent();
+		for (Map<TreeTableNode, BitSet> changes : asyncChanges.values()) {
+			record(changes, node, column);
+		}
+		if (batchDepth > 0) {
+			invalidateKeys(parent);
+			dirty.add((parent == null) ? node : parent);
+			return;
+		}
+		if (frameInterval > 0) {
+			record(changedRows, node, column);
+			scheduleFrame();
+			return;
+		}
+		applyValueChanged(node, column);
+	}
+
+	/*
+	 * Add column to the columns changed of node
+	 */
+	private static void record(Map<TreeTableNode, BitSet> rows,
+			TreeTableNode node, int column) {
+		BitSet columns = rows.get(node);
+		if (columns == null) {
+			columns = new BitSet();
+			rows.put(node, columns);
+		}
+		columns.set(column);
+	}
+
+	/*
+	 * Move node to its new position, if column is sorted on, and notify it
+	 */
+	private void applyValueChanged(TreeTableNode node, int column) {
+		TreeTableNode parent = node.getParent();
+		TreePath path = new TreePath(getPathToRoot(node));
+		TreeTableNode top = (filter == null) ? null : filterChanged(node);
+		if (!sortOrder.isSorted() || !isSortKey(column)
+				|| !(parent instanceof AbstractSortableTreeTableNode)) {
+			if (!sortOrder.isSorted()) {
+				invalidateKeys(parent);
+			}
+			fireChanged(path, top);
+			return;
+		}
+		AbstractSortableTreeTableNode p = (AbstractSortableTreeTableNode) parent;
+		if (!p.isSorted()) {
+			p.invalidateKeys();
+			fireChanged(path, top);
+			return;
+		}
+		int oldIndex = p.getIndex(node);
+		p.reposition(p.getModelIndex(node), column);
+		int newIndex = p.getIndex(node);
+		if (top != null || newIndex == oldIndex) {
+			fireChanged(path, top);
+			return;
+		}
+		TreePath parentPath = path.getParentPath();
+		fireChildRemoved(parentPath, oldIndex, node);
+		fireChildAdded(parentPath, newIndex, node);
+		// removal collapses the node in the tree
+		reExpand(path);
+	}
+
+	/**
+	 * Starts a batch of changes. Until the matching {@link #endBatch()},
+	 * nodes added or removed through the model, and sorts or value changes
+	 * requested, are not sorted and fire no events. The affected parents are
+	 * only recorded. Batches may be nested; only the outermost endBatch has
+	 * any effect.
+	 * <p>
+	 * Nodes changed within a batch report their children in model order until
+	 * the batch ends.
+	 * 
+	 * @see #runBatch(Runnable)
+	 */
+	public void beginBatch() {
+		batchDepth++;
+	}
+
+	/**
+	 * Ends a batch of changes. When the outermost batch ends, each changed
+	 * node which is not a descendant of another changed node is sorted once,
+	 * with all its children, and a single structure changed event is fired
+	 * for it. Expanded nodes within the changed nodes are then re-expanded
+	 * once.
+	 */
+	public void endBatch() {
+		if (batchDepth == 0) {
+			throw new IllegalStateException("endBatch without beginBatch");
+		}
+		if (--batchDepth == 0) {
+			flushChanges();
+		}
+	}
+
+	/**
+	 * Runs the changes made by task as a single batch.
+	 * 
+	 * @param task - makes the changes to the model
+	 * @see #beginBatch()
+	 */
+	public void runBatch(Runnable task) {
+		beginBatch();
+		try {
+			task.run();
+		} finally {
+			endBatch();
+		}
+	}
+
+	/**
+	 * Coalesce changes into frames, e.g. when quotes update many nodes a
+	 * second. While set, sorts requested are recorded as in a batch, and
+	 * values changed through {@link #valueChanged(TreeTableNode, int)} are
+	 * recorded with their columns. At most once per interval, on the Event
+	 * Dispatch Thread, the recorded parents are sorted and notified as at the
+	 * end of a batch, then each changed node not within them is placed and
+	 * notified, and the column header is repainted if the sort options
+	 * changed. So the work done by the TreeTable is bounded by the frame rate
+	 * rather than the rate of change.<br>
+	 * Nodes inserted or removed outside a batch are still notified at once,
+	 * as the TreeTable may read the tree before the frame is flushed. They
+	 * are placed directly in their parent's sort order, as when preserving
+	 * expansion. Changes are flushed at once when coalescing is turned off,
+	 * or when a batch ends.
+	 * 
+	 * @param millis - interval between frames, e.g. 16 for 60 frames a
+	 * second or 250 for 4, or 0 to apply each change as it is made
+	 */
+	public void setFrameInterval(int millis) {
+		if (millis < 0) {
+			throw new IllegalArgumentException(
+					"frame interval must not be negative");
+		}
+		frameInterval = millis;
+		if (millis == 0) {
+			if (frameTimer != null) {
+				frameTimer.stop();
+				frameTimer = null;
+			}
+			flushChanges();
+			return;
+		}
+		if (frameTimer == null) {
+			frameTimer = new Timer(millis, new ActionListener() {
+				@Override
+				public void actionPerformed(ActionEvent e) {
+					flushChanges();
+				}
+			});
+			frameTimer.setRepeats(false);
+		}
+		frameTimer.setInitialDelay(millis);
+		frameTimer.setDelay(millis);
+	}
+
+	public int getFrameInterval() {
+		return frameInterval;
+	}
+
+	/**
+	 * If set, inserting or removing a single node under a sorted parent does
+	 * not re-sort the parent. The node is placed in, or taken out of, the
+	 * existing sort order and a child added or removed event is fired for it
+	 * alone, rather than a structure change. The TreeTable then keeps the
+	 * expansion state of the other children itself, and no paths are
+	 * re-expanded.<br>
+	 * The other children are not re-sorted, so any changes to their values
+	 * must have been notified through {@link #valueChanged(TreeTableNode, int)}.
+	 * 
+	 * @param preserve
+	 */
+	public void setPreserveExpansion(boolean preserve) {
+		preserveExpansion = preserve;
+	}
+
+	public boolean isPreserveExpansion() {
+		return preserveExpansion;
+	}
+
+	/**
+	 * Set the Collator used to compare String values in the sort columns,
+	 * e.g. Collator.getInstance(Locale.CHINA) for Chinese names. A
+	 * CollationKey is computed once for each child when a node is sorted, and
+	 * the keys compared, rather than comparing the strings with the Collator.
+	 * If null, Strings are compared with compareTo, by UTF-16 code unit.<br>
+	 * The TreeTable is re-sorted if sorted.
+	 * 
+	 * @param collator - or null for the default
+	 */
+	public void setCollator(Collator collator) {
+		if (collator == this.collator) {
+			return;
+		}
+		this.collator = collator;
+		if (sortOrder.isSorted()) {
+			sort();
+		}
+	}
+
+	public Collator getCollator() {
+		return collator;
+	}
+
+	/**
+	 * Show only the nodes which filter includes, and their ancestors. Nodes
+	 * are hidden by their parents, rather than removed, so no nodes are
+	 * re-sorted and a single structure change is fired. The number of
+	 * included descendants of each node is counted, see
+	 * {@link AbstractSortableTreeTableNode#getMatchCount()}.<br>
+	 * Only the children of AbstractSortableTreeTableNodes can be hidden.
+	 * Nodes are shown or hidden as they are inserted, or as their values
+	 * change through {@link #valueChanged(TreeTableNode, int)}. If the
+	 * criteria of filter change, it should be set again.
+	 * 
+	 * @param filter - or null to show all nodes
+	 */
+	public void setFilter(NodeFilter filter) {
+		this.filter = filter;
+		TreeTableNode root = getRoot();
+		if (root == null) {
+			return;
+		}
+		if (isDeferred()) {
+			dirty.add(root);
+			return;
+		}
+		doFilter(root);
+		fireTreeStructureChanged(new TreePath(root));
 		reExpand();
 	}
 
+	public NodeFilter getFilter() {
+		return filter;
+	}
+
+	/**
+	 * Sort nodes with at least threshold children only partially. The first
+	 * window rows of such a node are put in order, and the remaining rows a
+	 * window at a time as the TreeTable is scrolled to them, see
+	 * {@link #placeRows(int)}. A row not yet placed is still read at its
+	 * place in the full order, by searching the rows not placed, without
+	 * placing it. A change to the node's children through
+	 * {@link #valueChanged(TreeTableNode, int)} or an insert or remove, or a
+	 * filter, completes the sort of that node.<br>
+	 * By default the TreeTable reads every row of an expanded node, each then
+	 * searched for. The TreeTable should be set to a large model with a fixed
+	 * row height, so that only the visible rows are read:
+	 * <pre>
+	 * treeTable.setLargeModel(true);
+	 * treeTable.setRowHeight(rowHeight);
+	 * </pre>
+	 * A partially sorted node is always notified as a structure change.
+	 * 
+	 * @param threshold - minimum number of children, or 0 to always sort in
+	 * full
+	 * @param window - number of rows to put in order at a time
+	 */
+	public void setPartialSort(int threshold, int window) {
+		if (threshold < 0 || (threshold > 0 && window < 1)) {
+			throw new IllegalArgumentException(
+					"threshold must not be negative and window must be positive");
+		}
+		partialThreshold = threshold;
+		partialWindow = window;
+	}
+
+	/**
+	 * Put in order the rows of partially sorted nodes which the TreeTable
+	 * may show up to lastRow, so that they are read without searching the
+	 * rows not yet placed. Called by SortableTreeTable before it paints, with
+	 * the last row in view. Each expanded node is placed up to as many rows
+	 * as there are between it and lastRow, ancestors first.
+	 * 
+	 * @param lastRow - last row of the TreeTable in view
+	 */
+	public void placeRows(int lastRow) {
+		if (partialThreshold == 0 || treeTable == null || getRoot() == null) {
+			return;
+		}
+		List<TreePath> partial = new ArrayList<TreePath>();
+		TreePath rootPath = new TreePath(getRoot());
+		if (isPartial(rootPath)) {
+			partial.add(rootPath);
+		}
+		for (TreePath path : expanded) {
+			if (path.getPathCount() > 1 && isPartial(path)) {
+				partial.add(path);
+			}
+		}
+		Collections.sort(partial, new Comparator<TreePath>() {
+			@Override
+			public int compare(TreePath a, TreePath b) {
+				return a.getPathCount() - b.getPathCount();
+			}
+		});
+		for (TreePath path : partial) {
+			if (!treeTable.isExpanded(path)) {
+				continue;
+			}
+			// -1 for a hidden root, whose children start at row 0
+			int row = treeTable.getRowForPath(path);
+			if (row == -1 && path != rootPath) {
+				continue;
+			}
+			if (row < lastRow) {
+				((AbstractSortableTreeTableNode) path.getLastPathComponent())
+						.placeRows(lastRow - row - 1);
+			}
+		}
+	}
+
+	/**
+	 * Set the fraction of a node's children which may move in a sort and
+	 * still be notified as removed and inserted. If more move, a structure
+	 * change is fired for the node instead, so a threshold of 0 always fires a
+	 * structure change when the order changes.<br>
+	 * Default is 0.5.
+	 * 
+	 * @param threshold - between 0 and 1
+	 */
+	public void setMoveThreshold(double threshold) {
+		if (threshold < 0 || threshold > 1) {
+			throw new IllegalArgumentException(
+					"threshold must be between 0 and 1");
+		}
+		moveThreshold = threshold;
+	}
+
+	public double getMoveThreshold() {
+		return moveThreshold;
+	}
+
+	/**
+	 * Keep the path of each row shown by the TreeTable in an array, patched
+	 * as nodes are expanded, collapsed, inserted, removed and sorted, so that
+	 * rows are looked up without walking the tree, by the TreeTable and the
+	 * tree rendering its hierarchical column alike. The index is the layout
+	 * cache of that tree, so is only used for a large model with a fixed
+	 * row height:
+	 * <pre>
+	 * treeTable.setLargeModel(true);
+	 * treeTable.setRowHeight(rowHeight);
+	 * </pre>
+	 * The tree is given a BasicTreeUI to hold the cache, in place of that of
+	 * the look and feel.<br>
+	 * Worth setting for large expanded trees; each patch moves the rows
+	 * below it, so it costs more than it saves for small trees which change
+	 * often.
+	 * 
+	 * @param indexed
+	 */
+	public void setRowIndexed(boolean indexed) {
+		if (indexed == rowIndexed) {
+			return;
+		}
+		rowIndexed = indexed;
+		if (treeTable != null) {
+			treeTable.indexRows(indexed);
+		}
+	}
+
+	public boolean isRowIndexed() {
+		return rowIndexed;
+	}
+
+	/**
+	 * Report the time taken by each sort, event fired, re-expansion, insert
+	 * and remove to listener, e.g. a {@link SortMetrics} registered with JMX.
+	 * If null, as by default, nothing is timed or counted.
+	 * 
+	 * @param listener - or null
+	 */
+	public void setMetricsListener(SortMetricsListener listener) {
+		metrics = listener;
+	}
+
+	public SortMetricsListener getMetricsListener() {
+		return metrics;
+	}
+
+	/**
+	 * Sort the whole TreeTable using pool, so that sibling subtrees are
+	 * sorted in parallel. Groups of siblings are handed to the pool once they
+	 * have at least threshold children between them; smaller groups are
+	 * sorted by the thread that reached them. The calling thread waits for
+	 * the sort to finish and then fires the structure change, so events are
+	 * still fired on the Event Dispatch Thread.<br>
+	 * Values are read from the nodes by the pool threads, so getSortValueAt
+	 * must be safe to call off the Event Dispatch Thread, and the tree must
+	 * not be changed during the sort.
+	 * 
+	 * @param pool - pool to sort on, or null to sort on the calling thread
+	 * @param threshold - minimum number of children for a group of siblings
+	 * to be sorted as a separate task
+	 */
+	public void setParallelSort(ForkJoinPool pool, int threshold) {
+		if (threshold < 1) {
+			throw new IllegalArgumentException("threshold must be positive");
+		}
+		sortPool = pool;
+		parallelThreshold = threshold;
+	}
+
+	/**
+	 * Set the executor used by {@link #sortAsync(TreeTableNode)}. If not set,
+	 * a single daemon thread is used.
+	 * 
+	 * @param executor
+	 */
+	public void setSortExecutor(Executor executor) {
+		sortExecutor = executor;
+	}
+
+	/**
+	 * Sorts the complete TreeTable in the background.
+	 * 
+	 * @see #sortAsync(TreeTableNode)
+	 */
+	public void sortAsync() {
+		if (getRoot() != null) {
+			sortAsync(getRoot());
+		}
+	}
+
+	/**
+	 * Sorts children of node, and all their children, in the background. The
+	 * sort keys are read from the nodes on the calling thread, which must be
+	 * the Event Dispatch Thread. The sorting itself is done by the sort
+	 * executor, and the new orders are then installed in all the nodes at
+	 * once, on the Event Dispatch Thread, followed by a single structure
+	 * changed event.<br>
+	 * If the whole tree is sorted again, or the sort options changed, before
+	 * the result is ready, even within a batch, the result is dropped. Nodes
+	 * whose children are added or removed through the model meanwhile, or
+	 * which are sorted again, keep their newer order. Nodes whose values are
+	 * changed through {@link #valueChanged(TreeTableNode, int)} meanwhile
+	 * are placed again once the result is installed, so a stream of changes
+	 * does not hold the sort back.
+	 * 
+	 * @param parent - first node to be sorted.
+	 */
+	public void sortAsync(final TreeTableNode parent) {
+		if (isDeferred() || !sortOrder.isSorted()) {
+			sort(parent);
+			return;
+		}
+		final int generation = ++sortGeneration;
+		final List<AsyncSort> sorts = new ArrayList<AsyncSort>();
+		snapshot(parent, sorts);
+		asyncChanges.put(sorts, new LinkedHashMap<TreeTableNode, BitSet>());
+		getSortExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				for (AsyncSort s : sorts) {
+					s.compute();
+				}
+				SwingUtilities.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						publish(parent, sorts, generation);
+					}
+				});
+			}
+		});
+	}
+
 	public int getSortColumnIndex() {
 		return columnIndex;
 	}
@@ -198,7 +847,8 @@ public class SortableTreeTableModel extends DefaultTreeTableModel
 
 	public void insertNodeInto(MutableTreeTableNode newChild,
 			MutableTreeTableNode parent) {
-		int index = getChildCount(parent);
+		load(parent);
+		int index = getChildCountModel(parent);
 		insertNodeInto(newChild, parent, index);
 	}
 	
@@ -209,7 +859,7 @@ public class SortableTreeTableModel extends DefaultTreeTableModel
 		if (n.isSorted() && !sortable) {
 			n.reset();
 			TreePath path = new TreePath(getPathToRoot(n));
-			modelSupport.firePathChanged(path);
+			firePathChanged(path);
 		}
 	}
 	
@@ -217,36 +867,103 @@ public class SortableTreeTableModel extends DefaultTreeTableModel
 
 	public void insertNodeInto(MutableTreeTableNode newChild,
 			MutableTreeTableNode parent, int index) {
+		long start = startTiming();
+		insertNode(newChild, parent, index);
+		if (metrics != null && start != 0) {
+			metrics.inserted(System.nanoTime() - start);
+		}
+	}
+
+	private void insertNode(MutableTreeTableNode newChild,
+			MutableTreeTableNode parent, int index) {
+		load(parent);
 		parent.insert(newChild, index);
-		if (sortOrder.isSorted()) {
-			sort(parent);
+		// within a frame the TreeTable may read the tree before the frame is
+		// flushed, so the node is notified now
+		if (batchDepth > 0) {
+			markDirty(parent);
+			return;
+		}
+		TreeTableNode top = (filter == null) ? null 
+				: addMatches(parent, filterInserted(newChild));
+		if (top != null) {
+			// an ancestor has been shown or hidden
+			doSort(parent, !sortOrder.isSorted());
+			fireStructureChanged(top);
+		} else if (sortOrder.isSorted()) {
+			if (!placesDirectly() || !insertSorted(newChild, parent, index)) {
+				resort(parent);
+			}
 		} else {
-			modelSupport.fireChildAdded(new TreePath(getPathToRoot(parent)),
-					index,
-					newChild);
+			int view = getIndexOfChild(parent, newChild);
+			if (view != -1) {
+				fireChildAdded(new TreePath(getPathToRoot(parent)),
+						view, newChild);
+			}
 		}
 	}
 
 	public void removeNodeFromParent(MutableTreeTableNode node) {
+		long start = startTiming();
+		removeNode(node);
+		if (metrics != null && start != 0) {
+			metrics.removed(System.nanoTime() - start);
+		}
+	}
+
+	private void removeNode(MutableTreeTableNode node) {
 		MutableTreeTableNode parent = (MutableTreeTableNode) node.getParent();
 		if (parent == null) {
 			throw new IllegalArgumentException("node does not have a parent.");
 		}
 		//int index = parent.getIndex(node);
+		// -1 if not shown
 		int index = getIndexOfChild(parent, node);
-		expanded.remove(new TreePath(getPathToRoot(node)));
+		int modelIndex = index;
+		if (parent instanceof AbstractSortableTreeTableNode) {
+			modelIndex = ((AbstractSortableTreeTableNode) parent)
+					.getModelIndex(node);
+		}
+		int matches = (filter == null) ? 0 : -countMatches(node);
+		TreePath path = new TreePath(getPathToRoot(node));
+		expanded.remove(path);
+		if (!node.isLeaf()) {
+			removeExpandedBelow(path);
+		}
 		node.removeFromParent();
-		if (sortOrder.isSorted()) {
-			sort(parent);
-		} else {
-			modelSupport.fireChildRemoved(new TreePath(getPathToRoot(parent)),
+		// notified now within a frame, as an insert
+		if (batchDepth > 0) {
+			markDirty(parent);
+			return;
+		}
+		TreeTableNode top = addMatches(parent, matches);
+		if (top != null) {
+			// an ancestor has been shown or hidden
+			doSort(parent, !sortOrder.isSorted());
+			fireStructureChanged(top);
+		} else if (sortOrder.isSorted()) {
+			if (placesDirectly() && removeSorted(parent, modelIndex)) {
+				if (index != -1) {
+					fireChildRemoved(path.getParentPath(), index,
+							node);
+				}
+			} else {
+				resort(parent);
+			}
+		} else if (index != -1) {
+			fireChildRemoved(new TreePath(getPathToRoot(parent)),
 					index, node);
 		}
 	}
 	
 	@Override
 	public void setRoot(TreeTableNode root) {
-		expanded = new ArrayList<TreePath>();		
+		expanded = new LinkedHashSet<TreePath>();		
+		dirty.clear();
+		changedRows.clear();
+		if (root != null && filter != null) {
+			doFilter(root);
+		}
 		super.setRoot(root);
 	}
 
@@ -262,13 +979,34 @@ public class SortableTreeTableModel extends DefaultTreeTableModel
 	 */
 	void setTreeTable(SortableTreeTable treeTable) {
 		this.treeTable = treeTable;
-		expanded = new ArrayList<TreePath>();
+		expanded = new LinkedHashSet<TreePath>();
 		header = treeTable.getTableHeader();
+		treeTable.indexRows(rowIndexed);
+	}
+	
+	private static final List<SortKey> NO_KEYS = Collections.emptyList();
+	
+	private static boolean isPartial(TreePath path) {
+		Object node = path.getLastPathComponent();
+		return (node instanceof AbstractSortableTreeTableNode)
+				&& ((AbstractSortableTreeTableNode) node).isPartiallySorted();
+	}
+	
+	private void clearKeys() {
+		sortColumn = null;
+		secondaryKeys.clear();
+		sortKeys = NO_KEYS;
+		if (sortOrder.isSorted()) {
+			sortOrder = SortOrder.UNSORTED;
+			reset();
+		}
 	}
 	
-	private void setKeys(String column, SortOrder order) {
+	private void setKeys(String column, SortOrder order,
+			List<? extends SortKey> secondary) {
+		List<SortKey> keys = secondaryKeys(column, secondary);
 		if (sortColumn != null && sortColumn.equals(column)) {
-			if (sortOrder.equals(order)) {
+			if (sortOrder.equals(order) && sameKeys(secondaryKeys, keys)) {
 				return;
 			}
 		} else {
@@ -284,23 +1022,94 @@ public class SortableTreeTableModel extends DefaultTreeTableModel
 		}
 		sortColumn = column;
 		sortOrder = order;
+		secondaryKeys = keys;
+		if (order.isSorted()) {
+			sortKeys = new ArrayList<SortKey>(keys.size() + 1);
+			sortKeys.add(new SortKey(order, columnIndex));
+			sortKeys.addAll(keys);
+		} else {
+			sortKeys = NO_KEYS;
+		}
 		sort();
 		if (header != null) {
-			header.repaint();
+			if (frameInterval > 0) {
+				headerChanged = true;
+				scheduleFrame();
+			} else {
+				header.repaint();
+			}
 		}
 	}
 
-	private void reset() {
-		doFullSort(true);
+	/*
+	 * The usable secondary keys - sorted, not the sort column, and not
+	 * repeated
+	 */
+	private List<SortKey> secondaryKeys(String column,
+			List<? extends SortKey> secondary) {
+		int primary = columnIdentifiers.indexOf(column);
+		List<SortKey> keys = new ArrayList<SortKey>(secondary.size());
+		for (SortKey key : secondary) {
+			int c = key.getColumn();
+			if (c < 0 || c > columnIdentifiers.size() - 1) {
+				throw new IllegalArgumentException("Column " + c
+						+ " not in Column Identifiers");
+			}
+			if (c == primary || !key.getSortOrder().isSorted() 
+					|| isKey(keys, c)) {
+				continue;
+			}
+			keys.add(key);
+		}
+		return keys;
 	}
-
-	private void doFullSort(boolean reset) {
-		TreeTableNode root = getRoot();
+	
+	private static boolean isKey(List<SortKey> keys, int column) {
+		for (SortKey key : keys) {
+			if (key.getColumn() == column) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private boolean isSortKey(int column) {
+		return isKey(sortKeys, column);
+	}
+	
+	private static boolean sameKeys(List<SortKey> a, List<SortKey> b) {
+		if (a.size() != b.size()) {
+			return false;
+		}
+		for (int i = 0; i < a.size(); i++) {
+			if (a.get(i).getColumn() != b.get(i).getColumn()
+					|| a.get(i).getSortOrder() != b.get(i).getSortOrder()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void reset() {
+		doFullSort(true);
+	}
+
+	private void doFullSort(boolean reset) {
+		supersede(getRoot());
+		TreeTableNode root = getRoot();
 		if (root == null) {
 			return;
 		}
-		doSort(root, reset);
-		modelSupport.fireTreeStructureChanged(new TreePath(root));
+		if (sortPool != null && !reset) {
+			List<TreeTableNode> nodes = new ArrayList<TreeTableNode>(1);
+			nodes.add(root);
+			long start = startSort();
+			sortPool.invoke(new SortTask(nodes));
+			endSort(start);
+		} else {
+			doSort(root, reset);
+		}
+		fireSorted(root, new TreePath(root));
 		reExpand();
 	}
 
@@ -308,6 +1117,35 @@ public class SortableTreeTableModel extends DefaultTreeTableModel
 	 * Start from node and drill down all nodes looking to sort.
 	 */
 	private void doSort(TreeTableNode parent, boolean reset) {
+		long start = startSort();
+		sortTree(parent, reset);
+		endSort(start);
+	}
+
+	private void sortTree(TreeTableNode parent, boolean reset) {
+		if (!isLoaded(parent)) {
+			// sorted when loaded
+			return;
+		}
+		sortNode(parent, reset);
+		// check children
+		//Enumeration<? extends TreeTableNode> kids = parent.children();
+		//while (kids.hasMoreElements()) {
+		//	TreeTableNode child = (TreeTableNode) kids.nextElement();
+		//	doSort(child, reset);
+		//}
+		
+		// model use version
+		for(int i = 0 ; i < getChildCountModel(parent) ; ++i) {
+		    TreeTableNode child = getChildAtModel(parent, i);
+	        sortTree(child, reset);
+		}
+	}
+	
+	/*
+	 * Sort the children of a single node
+	 */
+	private void sortNode(TreeTableNode parent, boolean reset) {
 		boolean canSort;
 		AbstractSortableTreeTableNode node;
 		if (parent instanceof AbstractSortableTreeTableNode) {
@@ -331,32 +1169,484 @@ public class SortableTreeTableModel extends DefaultTreeTableModel
 			if (reset) {
 				node.reset();
 			} else {
-				node.sort(columnIndex, sortOrder);
+				int count = node.getChildCountModel();
+				int window = (partialThreshold > 0 && count >= partialThreshold)
+						? partialWindow : 0;
+				// counted only with metrics, set once for the whole sort
+				boolean counting = (metrics != null);
+				node.setCounting(counting);
+				long compared = counting ? node.getComparisons() : 0;
+				node.sort(sortKeys, collator, window);
+				if (counting) {
+					sortedNodes.incrementAndGet();
+					comparisons.addAndGet(node.getComparisons() - compared);
+				}
 			}
-		} else {
+		} else if (node != null) {
 			node.reset();
 		}
-		// check children
-		//Enumeration<? extends TreeTableNode> kids = parent.children();
-		//while (kids.hasMoreElements()) {
-		//	TreeTableNode child = (TreeTableNode) kids.nextElement();
-		//	doSort(child, reset);
-		//}
-		
-		// model use version
-		for(int i = 0 ; i < getChildCount(parent) ; ++i) {
-		    TreeTableNode child = (TreeTableNode) getChild(parent, i);
-	        doSort(child, reset);
+	}
+	
+	/*
+	 * Child in model order, so that walking the tree does not complete a
+	 * partial sort
+	 */
+	private static TreeTableNode getChildAtModel(TreeTableNode parent,
+			int index) {
+		if (parent instanceof AbstractSortableTreeTableNode) {
+			return ((AbstractSortableTreeTableNode) parent)
+					.getChildAtModel(index);
+		}
+		return parent.getChildAt(index);
+	}
+	
+	private static int getChildCountModel(TreeTableNode parent) {
+		if (parent instanceof AbstractSortableTreeTableNode) {
+			return ((AbstractSortableTreeTableNode) parent).getChildCountModel();
+		}
+		return parent.getChildCount();
+	}
+	
+	// ============================================================ filtering
+	
+	/*
+	 * Apply the filter to parent's subtree, bottom up. Returns the number of
+	 * nodes included below parent.
+	 */
+	private int doFilter(TreeTableNode parent) {
+		int count = 0;
+		for (int i = 0; i < getChildCountModel(parent); i++) {
+			TreeTableNode child = getChildAtModel(parent, i);
+			int below = doFilter(child);
+			boolean match = (filter == null) || filter.include(child);
+			if (child instanceof AbstractSortableTreeTableNode) {
+				((AbstractSortableTreeTableNode) child).setMatch(match);
+			}
+			count += below + ((match) ? 1 : 0);
+		}
+		if (parent instanceof AbstractSortableTreeTableNode) {
+			((AbstractSortableTreeTableNode) parent).setFilter(filter,
+					(filter == null) ? 0 : count);
+		}
+		return count;
+	}
+	
+	/*
+	 * Apply the filter to node's subtree again, after changes in a batch.
+	 * Returns the highest ancestor whose shown children changed, or null.
+	 */
+	private TreeTableNode refilter(TreeTableNode node) {
+		if (!(node instanceof AbstractSortableTreeTableNode)) {
+			doFilter(node);
+			return null;
+		}
+		AbstractSortableTreeTableNode n = (AbstractSortableTreeTableNode) node;
+		boolean wasShown = n.isShown();
+		int old = n.getMatchCount();
+		int count = doFilter(node);
+		TreeTableNode top = null;
+		TreeTableNode parent = node.getParent();
+		if (wasShown != n.isShown() 
+				&& parent instanceof AbstractSortableTreeTableNode) {
+			((AbstractSortableTreeTableNode) parent).invalidateShown();
+			top = parent;
+		}
+		TreeTableNode above = addMatches(parent, count - old);
+		return (above == null) ? top : above;
+	}
+	
+	/*
+	 * Apply the filter to a new child's subtree. Returns the number of nodes
+	 * included, the child among them.
+	 */
+	private int filterInserted(TreeTableNode child) {
+		int below = doFilter(child);
+		boolean match = filter.include(child);
+		if (child instanceof AbstractSortableTreeTableNode) {
+			((AbstractSortableTreeTableNode) child).setMatch(match);
 		}
+		return below + ((match) ? 1 : 0);
 	}
 	
-	private void reExpand() {
+	/*
+	 * number of nodes included in node's subtree, node among them
+	 */
+	private int countMatches(TreeTableNode node) {
+		if (node instanceof AbstractSortableTreeTableNode) {
+			AbstractSortableTreeTableNode n = (AbstractSortableTreeTableNode) node;
+			return n.getMatchCount() + ((n.isMatch()) ? 1 : 0);
+		}
+		return (filter.include(node)) ? 1 : 0;
+	}
+	
+	/*
+	 * Apply the filter to a node whose value changed. Returns the highest
+	 * ancestor whose shown children changed, or null.
+	 */
+	private TreeTableNode filterChanged(TreeTableNode node) {
+		TreeTableNode parent = node.getParent();
+		if (!(parent instanceof AbstractSortableTreeTableNode)) {
+			return null;
+		}
+		AbstractSortableTreeTableNode p = (AbstractSortableTreeTableNode) parent;
+		boolean wasShown = p.getIndex(node) != -1;
+		boolean match = filter.include(node);
+		boolean shown = match;
+		int delta = 0;
+		if (node instanceof AbstractSortableTreeTableNode) {
+			AbstractSortableTreeTableNode n = (AbstractSortableTreeTableNode) node;
+			if (n.isMatch() != match) {
+				delta = (match) ? 1 : -1;
+			}
+			n.setMatch(match);
+			shown = n.isShown();
+		}
+		TreeTableNode top = null;
+		if (shown != wasShown) {
+			p.invalidateShown();
+			top = parent;
+		}
+		TreeTableNode above = addMatches(parent, delta);
+		return (above == null) ? top : above;
+	}
+	
+	/*
+	 * Add delta to the match counts of node and its ancestors. Returns the
+	 * highest ancestor whose shown children changed as a result, or null.
+	 */
+	private TreeTableNode addMatches(TreeTableNode node, int delta) {
+		TreeTableNode top = null;
+		for (TreeTableNode n = node; n instanceof AbstractSortableTreeTableNode
+				&& delta != 0; n = n.getParent()) {
+			AbstractSortableTreeTableNode a = (AbstractSortableTreeTableNode) n;
+			boolean wasShown = a.isShown();
+			a.addMatchCount(delta);
+			TreeTableNode p = n.getParent();
+			if (wasShown != a.isShown() 
+					&& p instanceof AbstractSortableTreeTableNode) {
+				((AbstractSortableTreeTableNode) p).invalidateShown();
+				top = p;
+			}
+		}
+		return top;
+	}
+	
+	/*
+	 * A value changed. If the filter showed or hid nodes, top is the highest
+	 * node whose children changed.
+	 */
+	private void fireChanged(TreePath path, TreeTableNode top) {
+		if (top != null) {
+			fireStructureChanged(top);
+			return;
+		}
+		Object node = path.getLastPathComponent();
+		TreePath parentPath = path.getParentPath();
+		if (filter != null && parentPath != null 
+				&& getIndexOfChild(parentPath.getLastPathComponent(), node) == -1) {
+			// not shown
+			return;
+		}
+		firePathChanged(path);
+	}
+	
+	private void fireStructureChanged(TreeTableNode node) {
+		TreePath path = new TreePath(getPathToRoot(node));
+		fireTreeStructureChanged(path);
+		reExpand(path);
+	}
+	
+	/*
+	 * Place a new child in its parent's existing sort order, sort its own
+	 * children, and notify it alone. Returns false if the parent must be
+	 * sorted in full instead.
+	 */
+	private boolean insertSorted(MutableTreeTableNode newChild,
+			MutableTreeTableNode parent, int modelIndex) {
+		if (parent instanceof AbstractSortableTreeTableNode) {
+			AbstractSortableTreeTableNode p = 
+					(AbstractSortableTreeTableNode) parent;
+			if (p.isSorted()) {
+				if (p.insertSorted(modelIndex) == -1) {
+					return false;
+				}
+			} else if (p.getChildCountModel() == 1) {
+				// first child - nothing to move
+				doSort(parent, false);
+			} else if (p.canSort() && p.canSort(sortColumn)) {
+				return false;
+			}
+		}
+		doSort(newChild, false);
+		int view = getIndexOfChild(parent, newChild);
+		if (view != -1) {
+			fireChildAdded(new TreePath(getPathToRoot(parent)),
+					view, newChild);
+		}
+		return true;
+	}
+
+	/*
+	 * Take a removed child out of its parent's existing sort order. Returns
+	 * false if the parent must be sorted in full instead.
+	 */
+	private boolean removeSorted(MutableTreeTableNode parent, int modelIndex) {
+		if (!(parent instanceof AbstractSortableTreeTableNode)) {
+			return true;
+		}
+		AbstractSortableTreeTableNode p = (AbstractSortableTreeTableNode) parent;
+		if (!p.isSorted()) {
+			return true;
+		}
+		return p.removeSorted(modelIndex);
+	}
+
+	/*
+	 * Sort parent's subtree and notify it now, even within a frame
+	 */
+	private void resort(TreeTableNode parent) {
+		if (load(parent)) {
+			// sorted as loaded
+			return;
+		}
+		doSort(parent, !sortOrder.isSorted());
+		TreePath path = new TreePath(getPathToRoot(parent));
+		fireSorted(parent, path);
+		reExpand(path);
+	}
+
+	/*
+	 * A node inserted or removed is placed directly in its parent's sort
+	 * order, if preserving expansion, or within frames, where its parent is
+	 * not to be sorted in full for every change
+	 */
+	private boolean placesDirectly() {
+		return preserveExpansion || frameInterval > 0;
+	}
+
+	/*
+	 * Record parent as changed within a batch. Its sort no longer matches its
+	 * children, so it is reverted to model order until the batch ends.
+	 */
+	private void markDirty(MutableTreeTableNode parent) {
+		if (parent instanceof AbstractSortableTreeTableNode) {
+			((AbstractSortableTreeTableNode) parent).reset();
+		}
+		dirty.add(parent);
+	}
+
+	/*
+	 * Notify the new order of parent's subtree after a sort. The children
+	 * which moved are fired as removed from their old positions and added at
+	 * their new ones; those which did not move are checked in turn. Falls
+	 * back to a structure change for any node where too many moved, or where
+	 * the order before the sort is not known.
+	 */
+	private void fireSorted(TreeTableNode parent, TreePath path) {
+		if (!isLoaded(parent)) {
+			// not sorted, and its children are not known
+			return;
+		}
+		RowMoves moves = null;
+		if (parent instanceof AbstractSortableTreeTableNode) {
+			moves = ((AbstractSortableTreeTableNode) parent).moves();
+			if (moves == null 
+					|| moves.count() > moveThreshold * parent.getChildCount()) {
+				fireTreeStructureChanged(path);
+				return;
+			}
+			if (moves.count() > 0) {
+				fireChildrenRemoved(path, moves.removed,
+						moves.removedChildren);
+				fireChildrenAdded(path, moves.added,
+						moves.addedChildren);
+			}
+		}
+		for (int i = 0; i < getChildCount(parent); i++) {
+			TreeTableNode child = (TreeTableNode) getChild(parent, i);
+			if ((moves != null && moves.isMoved(i)) || child.isLeaf()) {
+				// a moved child is read again in full when added
+				continue;
+			}
+			fireSorted(child, path.pathByAddingChild(child));
+		}
+	}
+
+	/*
+	 * Changes are held back within a batch, or until the next frame if
+	 * coalescing, in which case the frame is scheduled
+	 */
+	private boolean isDeferred() {
+		if (batchDepth > 0) {
+			return true;
+		}
+		if (frameInterval == 0) {
+			return false;
+		}
+		scheduleFrame();
+		return true;
+	}
+
+	private void scheduleFrame() {
+		if (!frameTimer.isRunning()) {
+			frameTimer.start();
+		}
+	}
+
+	/*
+	 * Flush the parents recorded, then the values changed outside them, and
+	 * the header. Values changed within a batch are recorded as parents.
+	 */
+	private void flushChanges() {
+		if (batchDepth > 0) {
+			// flushed when the batch ends
+			return;
+		}
+		List<TreeTableNode> rows = new ArrayList<TreeTableNode>();
+		for (TreeTableNode node : changedRows.keySet()) {
+			// those within a recorded parent are notified by its structure
+			// change
+			if (isAttached(node) && !hasDirtyAncestor(node)) {
+				rows.add(node);
+			}
+		}
+		Map<TreeTableNode, BitSet> columns = changedRows;
+		changedRows = new LinkedHashMap<TreeTableNode, BitSet>();
+		flushBatch();
+		for (TreeTableNode node : rows) {
+			BitSet changed = columns.get(node);
+			for (int c = changed.nextSetBit(0); c >= 0;
+					c = changed.nextSetBit(c + 1)) {
+				applyValueChanged(node, c);
+			}
+		}
+		if (headerChanged) {
+			headerChanged = false;
+			if (header != null) {
+				header.repaint();
+			}
+		}
+	}
+
+	/*
+	 * Sort each changed subtree once and fire one event for it. Children
+	 * have been added or removed, so the order before the sort is not known.
+	 */
+	private void flushBatch() {
+		if (dirty.isEmpty()) {
+			return;
+		}
+		List<TreeTableNode> changed = new ArrayList<TreeTableNode>();
+		for (TreeTableNode node : dirty) {
+			if (isAttached(node) && !hasDirtyAncestor(node)) {
+				changed.add(node);
+			}
+		}
+		dirty.clear();
+		boolean reset = !sortOrder.isSorted();
+		List<TreePath> paths = new ArrayList<TreePath>(changed.size());
+		for (TreeTableNode node : changed) {
+			supersede(node);
+			TreeTableNode top = (filter == null) ? null : refilter(node);
+			doSort(node, reset);
+			TreePath path = new TreePath(getPathToRoot(
+					(top == null) ? node : top));
+			fireTreeStructureChanged(path);
+			paths.add(path);
+		}
+		reExpand(paths);
+	}
+
+	/*
+	 * A changed value not placed by reposition must be read again by the
+	 * next sort of parent
+	 */
+	private static void invalidateKeys(TreeTableNode parent) {
+		if (parent instanceof AbstractSortableTreeTableNode) {
+			((AbstractSortableTreeTableNode) parent).invalidateKeys();
+		}
+	}
+
+	private boolean hasDirtyAncestor(TreeTableNode node) {
+		for (TreeTableNode p = node.getParent(); p != null; p = p.getParent()) {
+			if (dirty.contains(p)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * A node changed in a batch may have been removed later in the batch
+	 */
+	private boolean isAttached(TreeTableNode node) {
+		TreeTableNode p = node;
+		while (p.getParent() != null) {
+			p = p.getParent();
+		}
+		return p == getRoot();
+	}
+
+	/**
+	 * Re-expand every expanded path. Package, so that the benchmarks can
+	 * measure it by itself
+	 */
+	void reExpand() {
 		if (treeTable == null) return;
+		long start = startTiming();
 		expanding = true;
 		for (TreePath path : expanded) {
 			treeTable.expandPath(path);
 		}
 		expanding = false;
+		if (metrics != null && start != 0) {
+			metrics.reExpanded(expanded.size(), System.nanoTime() - start);
+		}
+	}
+	
+	/*
+	 * Re-expand only those paths at or below parent
+	 */
+	private void reExpand(TreePath parent) {
+		reExpand(Collections.singleton(parent));
+	}
+	
+	/*
+	 * Re-expand only those paths at or below one of parents. Each expanded
+	 * path is checked by looking up its ancestors, rather than comparing it
+	 * with each parent.
+	 */
+	private void reExpand(Collection<TreePath> parents) {
+		if (treeTable == null || parents.isEmpty()) return;
+		Set<TreePath> scope = new HashSet<TreePath>(parents);
+		long start = startTiming();
+		int replayed = 0;
+		expanding = true;
+		for (TreePath path : expanded) {
+			for (TreePath p = path; p != null; p = p.getParentPath()) {
+				if (scope.contains(p)) {
+					treeTable.expandPath(path);
+					replayed++;
+					break;
+				}
+			}
+		}
+		expanding = false;
+		if (metrics != null && start != 0) {
+			metrics.reExpanded(replayed, System.nanoTime() - start);
+		}
+	}
+	
+	/*
+	 * forget expanded paths below a removed node
+	 */
+	private void removeExpandedBelow(TreePath parent) {
+		Iterator<TreePath> it = expanded.iterator();
+		while (it.hasNext()) {
+			if (parent.isDescendant(it.next())) {
+				it.remove();
+			}
+		}
 	}
 
 	/* 
@@ -373,10 +1663,336 @@ public class SortableTreeTableModel extends DefaultTreeTableModel
 	 */
 	@Override
 	public void treeExpanded(TreeExpansionEvent arg0) {
-		if (expanding) return;
 		TreePath p = arg0.getPath();
-		if (!expanded.contains(p)) {
-			expanded.add(p);
+		loadLater((TreeTableNode) p.getLastPathComponent());
+		if (expanding) return;
+		expanded.add(p);
+	}
+
+	/* 
+	 * Inherited
+	 */
+	@Override
+	public void treeWillExpand(TreeExpansionEvent arg0) {
+		// lazy nodes are loaded once expanded
+	}
+
+	/* 
+	 * Inherited
+	 */
+	@Override
+	public void treeWillCollapse(TreeExpansionEvent arg0) {
+		// nothing to do
+	}
+
+	// =============================================================== metrics
+	
+	/*
+	 * Events are fired through the following methods, so that each is timed
+	 * if there is a metrics listener. With none, the cost is a field read.
+	 */
+	
+	private void fireTreeStructureChanged(TreePath path) {
+		long start = startTiming();
+		modelSupport.fireTreeStructureChanged(path);
+		fired(Event.STRUCTURE_CHANGED, 1, start);
+	}
+	
+	private void firePathChanged(TreePath path) {
+		long start = startTiming();
+		modelSupport.firePathChanged(path);
+		fired(Event.NODES_CHANGED, 1, start);
+	}
+	
+	private void fireChildAdded(TreePath parentPath, int index, Object child) {
+		long start = startTiming();
+		modelSupport.fireChildAdded(parentPath, index, child);
+		fired(Event.NODES_INSERTED, 1, start);
+	}
+	
+	private void fireChildrenAdded(TreePath parentPath, int[] indices,
+			Object[] children) {
+		long start = startTiming();
+		modelSupport.fireChildrenAdded(parentPath, indices, children);
+		fired(Event.NODES_INSERTED, indices.length, start);
+	}
+	
+	private void fireChildRemoved(TreePath parentPath, int index,
+			Object child) {
+		long start = startTiming();
+		modelSupport.fireChildRemoved(parentPath, index, child);
+		fired(Event.NODES_REMOVED, 1, start);
+	}
+	
+	private void fireChildrenRemoved(TreePath parentPath, int[] indices,
+			Object[] children) {
+		long start = startTiming();
+		modelSupport.fireChildrenRemoved(parentPath, indices, children);
+		fired(Event.NODES_REMOVED, indices.length, start);
+	}
+	
+	/*
+	 * 0 if there is no metrics listener
+	 */
+	private long startTiming() {
+		return (metrics == null) ? 0 : System.nanoTime();
+	}
+	
+	private void fired(Event event, int rows, long start) {
+		if (metrics != null && start != 0) {
+			metrics.eventFired(event, rows, System.nanoTime() - start);
+		}
+	}
+	
+	/*
+	 * Sorts are counted by sortNode, which may run on several threads
+	 */
+	private long startSort() {
+		if (metrics == null) {
+			return 0;
+		}
+		sortedNodes.set(0);
+		comparisons.set(0);
+		return System.nanoTime();
+	}
+	
+	private void endSort(long start) {
+		if (metrics != null && start != 0) {
+			metrics.sorted(sortedNodes.get(), comparisons.get(),
+					System.nanoTime() - start);
+		}
+	}
+
+	// ========================================================= lazy loading
+
+	private static boolean isLoaded(TreeTableNode node) {
+		return !(node instanceof AbstractLazySortableTreeTableNode)
+				|| ((AbstractLazySortableTreeTableNode) node).isLoaded();
+	}
+
+	/*
+	 * Load the children of a lazy node, filter and sort them, and notify the
+	 * node's new structure. Returns false if node is already loaded.
+	 */
+	private boolean load(TreeTableNode node) {
+		if (isLoaded(node)) {
+			return false;
+		}
+		((AbstractLazySortableTreeTableNode) node).load();
+		TreeTableNode top = null;
+		if (filter != null) {
+			top = refilter(node);
+			TreeTableNode parent = node.getParent();
+			// shown until loaded, whatever its matches
+			if (top == null && parent instanceof AbstractSortableTreeTableNode
+					&& !((AbstractSortableTreeTableNode) node).isShown()) {
+				((AbstractSortableTreeTableNode) parent).invalidateShown();
+				top = parent;
+			}
+		}
+		doSort(node, !sortOrder.isSorted());
+		fireStructureChanged((top == null) ? node : top);
+		return true;
+	}
+
+	/*
+	 * Load a lazy node which has been expanded, once the tree has finished
+	 * expanding it, so that the structure change is not fired from within
+	 * the expansion
+	 */
+	private void loadLater(final TreeTableNode node) {
+		if (isLoaded(node)) {
+			return;
+		}
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				if (isAttached(node)) {
+					load(node);
+				}
+			}
+		});
+	}
+
+	// =================================================== background sorting
+	
+	private Executor getSortExecutor() {
+		if (sortExecutor == null) {
+			sortExecutor = Executors.newSingleThreadExecutor(
+					new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "SortableTreeTableModel sort");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return sortExecutor;
+	}
+	
+	/*
+	 * Capture the keys of each node to be sorted, in the same way as doSort
+	 */
+	private void snapshot(TreeTableNode parent, List<AsyncSort> sorts) {
+		if (!isLoaded(parent)) {
+			// sorted when loaded
+			return;
+		}
+		if (parent instanceof AbstractSortableTreeTableNode) {
+			AbstractSortableTreeTableNode node = 
+					(AbstractSortableTreeTableNode) parent;
+			if (node.canSort() && node.canSort(sortColumn)) {
+				sorts.add(new AsyncSort(node, 
+						node.snapshot(sortKeys, collator)));
+			} else {
+				sorts.add(new AsyncSort(node, null));
+			}
+		}
+		for(int i = 0 ; i < getChildCountModel(parent) ; ++i) {
+			snapshot(getChildAtModel(parent, i), sorts);
+		}
+	}
+	
+	/*
+	 * A sort of parent's subtree, now or when deferred changes are flushed,
+	 * with keys which may have changed. A sort of the whole tree drops the
+	 * background sorts pending; the nodes of a subtree sorted are newer than
+	 * the background sorts, which skip them.
+	 */
+	private void supersede(TreeTableNode parent) {
+		if (parent == null || parent == getRoot()) {
+			sortGeneration++;
+			asyncChanges.clear();
+		}
+	}
+
+	/*
+	 * Install the result of a background sort, on the EDT, then place again
+	 * the nodes whose values changed while it was computed
+	 */
+	private void publish(TreeTableNode parent, List<AsyncSort> sorts,
+			int generation) {
+		Map<TreeTableNode, BitSet> changes = asyncChanges.remove(sorts);
+		if (generation != sortGeneration) {
+			// a later sort has been requested
+			return;
+		}
+		if (!isAttached(parent)) {
+			return;
+		}
+		for (AsyncSort s : sorts) {
+			s.apply();
+		}
+		TreePath path = new TreePath(getPathToRoot(parent));
+		fireSorted(parent, path);
+		reExpand(path);
+		for (Map.Entry<TreeTableNode, BitSet> e : changes.entrySet()) {
+			TreeTableNode node = e.getKey();
+			BitSet columns = e.getValue();
+			for (int c = columns.nextSetBit(0); c >= 0;
+					c = columns.nextSetBit(c + 1)) {
+				if (isSortKey(c) && isAttached(node)) {
+					valueChanged(node, c);
+				}
+			}
+		}
+	}
+	
+	/*
+	 * The sort of one node, computed off the EDT
+	 */
+	private static class AsyncSort {
+		
+		private final AbstractSortableTreeTableNode node;
+		// null if node is to be reset
+		private final RowOrder order;
+		private final int version;
+		private int[] viewToModel;
+		
+		AsyncSort(AbstractSortableTreeTableNode node, RowOrder order) {
+			this.node = node;
+			this.order = order;
+			version = node.getOrderVersion();
+		}
+		
+		void compute() {
+			if (order == null) {
+				return;
+			}
+			int count = order.count();
+			viewToModel = new int[count];
+			order.sort(viewToModel, new int[count], count);
+		}
+		
+		/*
+		 * Skipped if the node's order or children have changed since the
+		 * snapshot: its own order is newer
+		 */
+		void apply() {
+			if (node.getOrderVersion() != version) {
+				return;
+			}
+			if (order == null || !node.applySort(order, viewToModel)) {
+				node.reset();
+			}
+		}
+	}
+	
+	// ===================================================== parallel sorting
+	
+	/*
+	 * Sorts each of nodes and all their descendants. Children with children
+	 * of their own are grouped until the group holds parallelThreshold
+	 * grandchildren, and each full group is forked.
+	 */
+	private class SortTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private final List<TreeTableNode> nodes;
+
+		SortTask(List<TreeTableNode> nodes) {
+			this.nodes = nodes;
+		}
+
+		@Override
+		protected void compute() {
+			List<SortTask> forked = new ArrayList<SortTask>();
+			for (TreeTableNode node : nodes) {
+				if (!isLoaded(node)) {
+					continue;
+				}
+				sortNode(node, false);
+				List<TreeTableNode> group = new ArrayList<TreeTableNode>();
+				int size = 0;
+				for (int i = 0; i < getChildCountModel(node); i++) {
+					TreeTableNode child = getChildAtModel(node, i);
+					if (!isLoaded(child)) {
+						// sorted when loaded
+						continue;
+					}
+					int count = getChildCountModel(child);
+					if (count == 0) {
+						sortNode(child, false);
+						continue;
+					}
+					group.add(child);
+					size += count;
+					if (size >= parallelThreshold) {
+						SortTask task = new SortTask(group);
+						task.fork();
+						forked.add(task);
+						group = new ArrayList<TreeTableNode>();
+						size = 0;
+					}
+				}
+				if (!group.isEmpty()) {
+					new SortTask(group).compute();
+				}
+			}
+			for (SortTask task : forked) {
+				task.join();
+			}
 		}
 	}
 
@@ -0,0 +1,374 @@
+/** VisibleRows.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
+
+/**
+ * The paths of the rows shown by a tree, in row order, so that a row is
+ * mapped to its path by an array lookup rather than a walk of the tree.<br>
+ * The array is patched on each expansion, collapse and model event passed on
+ * by the layout cache, once the cache has updated its own rows: a structure
+ * change keeps the node expanded but collapses its descendants, and inserted
+ * nodes are collapsed. Paths re-expanded after a sort arrive as expansions.
+ * <p>
+ * The row count is checked against the layout cache on each lookup, and the
+ * array rebuilt if they differ, so a missed event costs a rebuild rather
+ * than a wrong row.
+ */
+final class VisibleRows implements TreeModelListener {
+
+	private final IndexedLayoutCache layout;
+	private TreePath[] paths = new TreePath[16];
+	private int count = 0;
+	private boolean valid = false;
+	// row of each node, exact below mapped, and extended from there as rows
+	// are looked up. A patch moves the rows after it, so lowers mapped.
+	private final Map<Object, Integer> rows =
+			new IdentityHashMap<Object, Integer>();
+	private int mapped = 0;
+
+	VisibleRows(IndexedLayoutCache layout) {
+		this.layout = layout;
+	}
+
+	/**
+	 * @return the path shown at row, or null if there is no such row
+	 */
+	TreePath getPath(int row) {
+		validate();
+		return (row < 0 || row >= count) ? null : paths[row];
+	}
+
+	/**
+	 * @return the row path is shown at, or -1 if it is not shown
+	 */
+	int getRow(TreePath path) {
+		validate();
+		return rowOf(path);
+	}
+
+	int getRowCount() {
+		validate();
+		return count;
+	}
+
+	/**
+	 * rebuild the rows on the next lookup
+	 */
+	void invalidate() {
+		valid = false;
+	}
+
+	/**
+	 * Add the rows below path, which has been expanded. A path whose parent
+	 * was collapsed is expanded with it, so the rows are added below the
+	 * nearest ancestor shown.
+	 */
+	void expanded(TreePath path) {
+		if (!valid) return;
+		int row = parentRow(path);
+		while (row == Integer.MIN_VALUE) {
+			path = path.getParentPath();
+			if (path == null) {
+				valid = false;
+				return;
+			}
+			row = parentRow(path);
+		}
+		removeBelow(row);
+		insert(row + 1, below(path, true));
+	}
+
+	/**
+	 * Remove the rows below path, which has been collapsed
+	 */
+	void collapsed(TreePath path) {
+		int row = parentRow(path);
+		if (row == Integer.MIN_VALUE) return;
+		removeBelow(row);
+	}
+
+	// ==================================================== TreeModelListener
+
+	public void treeNodesChanged(TreeModelEvent e) {
+		// same rows
+	}
+
+	/*
+	 * The children are placed among the rows of the existing children, found
+	 * in one walk of the parent's rows, then all inserted in one pass
+	 */
+	public void treeNodesInserted(TreeModelEvent e) {
+		TreePath parent = e.getTreePath();
+		int row = parentRow(parent);
+		if (row == Integer.MIN_VALUE || !layout.getExpandedState(parent)) {
+			return;
+		}
+		int[] indexes = e.getChildIndices();
+		Object[] children = e.getChildren();
+		// first row of each existing child, then the row after them all
+		int end = end(row);
+		int depth = parent.getPathCount() + 1;
+		int[] starts = new int[end - row];
+		int existing = 0;
+		for (int r = row + 1; r < end; r++) {
+			if (paths[r].getPathCount() == depth) {
+				starts[existing++] = r;
+			}
+		}
+		starts[existing] = end;
+		if (existing + indexes.length != layout.getModel().getChildCount(
+				parent.getLastPathComponent())) {
+			valid = false;
+			return;
+		}
+		int[] at = new int[indexes.length];
+		TreePath[] added = new TreePath[indexes.length];
+		for (int i = 0; i < indexes.length; i++) {
+			// the existing children before it
+			int before = indexes[i] - i;
+			if (before < 0 || before > existing
+					|| (i > 0 && indexes[i] <= indexes[i - 1])) {
+				// not in order of index
+				valid = false;
+				return;
+			}
+			at[i] = starts[before];
+			added[i] = parent.pathByAddingChild(children[i]);
+		}
+		insert(at, added);
+	}
+
+	/*
+	 * The rows of all the children are found before any is removed, then
+	 * removed in one pass
+	 */
+	public void treeNodesRemoved(TreeModelEvent e) {
+		TreePath parent = e.getTreePath();
+		if (parentRow(parent) == Integer.MIN_VALUE) return;
+		Object[] children = e.getChildren();
+		int[] starts = new int[children.length];
+		int n = 0;
+		for (Object child : children) {
+			int row = rowOf(parent.pathByAddingChild(child));
+			if (row != -1) {
+				starts[n++] = row;
+			}
+		}
+		if (n == 0) return;
+		Arrays.sort(starts, 0, n);
+		int kept = starts[0];
+		for (int i = 0; i < n; i++) {
+			// rows up to the next child are only moved down, so those of
+			// the next child are still in place
+			int from = end(starts[i]);
+			int to = (i + 1 < n) ? starts[i + 1] : count;
+			System.arraycopy(paths, from, paths, kept, to - from);
+			kept += to - from;
+		}
+		Arrays.fill(paths, kept, count, null);
+		count = kept;
+		unmap(starts[0]);
+	}
+
+	public void treeStructureChanged(TreeModelEvent e) {
+		TreePath path = e.getTreePath();
+		if (path == null || path.getPathCount() == 1) {
+			// new root, or every row may have changed
+			valid = false;
+			return;
+		}
+		int row = parentRow(path);
+		if (row == Integer.MIN_VALUE) return;
+		removeBelow(row);
+		if (layout.getExpandedState(path)) {
+			insert(row + 1, below(path, false));
+		}
+	}
+
+	// ======================================================= private methods
+
+	private void validate() {
+		if (!valid || count != layout.getLayoutRowCount()) {
+			rebuild();
+		}
+	}
+
+	private void rebuild() {
+		Arrays.fill(paths, 0, count, null);
+		count = 0;
+		rows.clear();
+		mapped = 0;
+		valid = true;
+		TreeModel model = layout.getModel();
+		Object root = (model == null) ? null : model.getRoot();
+		if (root == null) return;
+		TreePath path = new TreePath(root);
+		List<TreePath> all = new ArrayList<TreePath>();
+		if (layout.isRootVisible()) {
+			all.add(path);
+		}
+		if (layout.getExpandedState(path)) {
+			all.addAll(below(path, true));
+		}
+		insert(0, all);
+	}
+
+	/*
+	 * Row of the node whose children start at the following row: -1 for a
+	 * hidden root, MIN_VALUE if path is not shown or the rows are rebuilt
+	 * on the next lookup anyway
+	 */
+	private int parentRow(TreePath path) {
+		if (!valid) return Integer.MIN_VALUE;
+		if (path.getParentPath() == null && !layout.isRootVisible()) {
+			return (path.getLastPathComponent() == layout.getModel().getRoot())
+					? -1 : Integer.MIN_VALUE;
+		}
+		int row = rowOf(path);
+		return (row == -1) ? Integer.MIN_VALUE : row;
+	}
+
+	/*
+	 * Rows below mapped are looked up, the rest found by mapping on from
+	 * mapped. The rows of nodes moved past mapped, or no longer shown, are
+	 * left in the map, as they are checked against paths, until there are as
+	 * many again as rows.
+	 */
+	private int rowOf(TreePath path) {
+		Object node = path.getLastPathComponent();
+		Integer row = rows.get(node);
+		if (row != null && row < mapped
+				&& paths[row].getLastPathComponent() == node) {
+			return paths[row].equals(path) ? row : -1;
+		}
+		if (rows.size() > (count << 1) + 16) {
+			rows.clear();
+			mapped = 0;
+		}
+		while (mapped < count) {
+			int r = mapped++;
+			Object shown = paths[r].getLastPathComponent();
+			rows.put(shown, r);
+			if (shown == node) {
+				return paths[r].equals(path) ? r : -1;
+			}
+		}
+		return -1;
+	}
+	
+	/*
+	 * rows from row on have moved
+	 */
+	private void unmap(int row) {
+		if (row < mapped) {
+			mapped = row;
+		}
+	}
+
+	/*
+	 * The row after those of the node at row and its descendants. Rows are
+	 * in depth first order, so the descendants are the following rows with
+	 * longer paths.
+	 */
+	private int end(int row) {
+		if (row == -1) return count;
+		int depth = paths[row].getPathCount();
+		int end = row + 1;
+		while (end < count && paths[end].getPathCount() > depth) {
+			end++;
+		}
+		return end;
+	}
+
+	private void removeBelow(int row) {
+		if (row == -1) {
+			remove(0, count);
+		} else {
+			remove(row + 1, end(row));
+		}
+	}
+
+	/*
+	 * The paths shown below path, which is expanded: its children, and
+	 * if deep, the rows below those of them which are expanded too
+	 */
+	private List<TreePath> below(TreePath path, boolean deep) {
+		List<TreePath> result = new ArrayList<TreePath>();
+		addBelow(path, deep, result);
+		return result;
+	}
+
+	private void addBelow(TreePath path, boolean deep, List<TreePath> result) {
+		TreeModel model = layout.getModel();
+		Object node = path.getLastPathComponent();
+		int n = model.getChildCount(node);
+		for (int i = 0; i < n; i++) {
+			TreePath child = path.pathByAddingChild(model.getChild(node, i));
+			result.add(child);
+			if (deep && layout.getExpandedState(child)) {
+				addBelow(child, true, result);
+			}
+		}
+	}
+
+	private void insert(int row, List<TreePath> added) {
+		int n = added.size();
+		if (n == 0) return;
+		if (count + n > paths.length) {
+			paths = Arrays.copyOf(paths, Math.max(count + n,
+					paths.length + (paths.length >> 1)));
+		}
+		System.arraycopy(paths, row, paths, row + n, count - row);
+		for (int i = 0; i < n; i++) {
+			paths[row + i] = added.get(i);
+		}
+		count += n;
+		unmap(row);
+	}
+
+	/*
+	 * Insert each of added before the existing row at the same index, rows
+	 * being in order. Existing rows are moved once, from the last.
+	 */
+	private void insert(int[] rows, TreePath[] added) {
+		int n = added.length;
+		if (n == 0) return;
+		if (count + n > paths.length) {
+			paths = Arrays.copyOf(paths, Math.max(count + n,
+					paths.length + (paths.length >> 1)));
+		}
+		int from = count;
+		int to = count + n;
+		for (int i = n - 1; i >= 0; i--) {
+			int moved = from - rows[i];
+			to -= moved;
+			System.arraycopy(paths, rows[i], paths, to, moved);
+			from = rows[i];
+			paths[--to] = added[i];
+		}
+		count += n;
+		unmap(rows[0]);
+	}
+
+	private void remove(int from, int to) {
+		if (to <= from) return;
+		System.arraycopy(paths, to, paths, from, count - to);
+		Arrays.fill(paths, count - (to - from), count, null);
+		count -= to - from;
+		unmap(from);
+	}
+}
@@ -0,0 +1,74 @@
+/** GetIndexBenchmark.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.tree.TreeNode;
+
+import org.codelutin.jtimer.ui.treetable.sorting.SymbolTrees.Shape;
+import org.codelutin.jtimer.ui.treetable.sorting.SymbolTrees.SymbolNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The view index of a child of a sorted wide node, as looked up by the
+ * TreeTable when painting and selecting. Children are looked up in a random
+ * order, with and without the child index.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g", "-Djava.awt.headless=true" })
+@State(Scope.Thread)
+public class GetIndexBenchmark {
+
+	@Param({ "1000", "10000", "100000", "1000000" })
+	int size;
+
+	@Param({ "false", "true" })
+	boolean childIndexed;
+
+	private SymbolNode node;
+	private TreeNode[] children;
+	private int next = 0;
+
+	@Setup
+	public void build() {
+		node = SymbolTrees.build(Shape.WIDE, size, 42);
+		node.setChildIndexed(childIndexed);
+		SortableTreeTableModel model = new SortableTreeTableModel(node,
+				SymbolTrees.COLUMNS);
+		model.setSortColumn(SymbolTrees.PRICE);
+		List<TreeNode> list = new ArrayList<TreeNode>(size);
+		for (int i = 0; i < size; i++) {
+			list.add(node.getChildAt(i));
+		}
+		Collections.shuffle(list, new Random(42));
+		children = list.toArray(new TreeNode[size]);
+	}
+
+	@Benchmark
+	public int getIndex() {
+		TreeNode child = children[next];
+		next = (next + 1 == children.length) ? 0 : next + 1;
+		return node.getIndex(child);
+	}
+}
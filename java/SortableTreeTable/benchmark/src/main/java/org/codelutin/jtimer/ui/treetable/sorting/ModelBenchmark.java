@@ -0,0 +1,208 @@
+/** ModelBenchmark.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreePath;
+
+import org.codelutin.jtimer.ui.treetable.sorting.SymbolTrees.Shape;
+import org.codelutin.jtimer.ui.treetable.sorting.SymbolTrees.SymbolNode;
+import org.jdesktop.swingx.decorator.SortOrder;
+import org.jdesktop.swingx.treetable.TreeTableNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Operations on a SortableTreeTableModel sorted by price, for wide and deep
+ * trees.<br>
+ * Nodes are inserted into and removed from the first child of the root in a
+ * deep tree, which holds a quarter of the nodes, or the root itself in a wide
+ * one. Each sort is in the opposite direction to the last.
+ * <p>
+ * sortExpanded sorts with a SortableTreeTable attached and the top levels of
+ * the tree expanded, on the Event Dispatch Thread. Its difference from sort
+ * is the cost of the structure change and re-expanding the paths.
+ * <p>
+ * reExpand measures only re-expanding those paths, after the tree has
+ * forgotten them on a structure change which the model did not make.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g", "-Djava.awt.headless=true" })
+public class ModelBenchmark {
+
+	/**
+	 * levels of a deep tree expanded for sortExpanded
+	 */
+	static final int EXPANDED_LEVELS = 3;
+
+	@State(Scope.Thread)
+	public static class Tree {
+
+		@Param({ "1000", "100000", "1000000" })
+		int size;
+
+		@Param
+		Shape shape;
+
+		SortableTreeTableModel model;
+		SymbolNode parent;
+		SymbolNode extra;
+		boolean flip = false;
+
+		@Setup(Level.Trial)
+		public void build() {
+			SymbolNode root = SymbolTrees.build(shape, size, 42);
+			model = new SortableTreeTableModel(root, SymbolTrees.COLUMNS);
+			model.setSortColumn(SymbolTrees.PRICE);
+			parent = (shape == Shape.WIDE) ? root
+					: (SymbolNode) root.getChildAt(0);
+			extra = SymbolTrees.nodes(1, 7).get(0);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Inserted extends Tree {
+
+		@TearDown(Level.Invocation)
+		public void remove() {
+			model.removeNodeFromParent(extra);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Removed extends Tree {
+
+		@Setup(Level.Invocation)
+		public void insert() {
+			model.insertNodeInto(extra, parent);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Expanded extends Tree {
+
+		SortableTreeTable treeTable;
+
+		@Override
+		@Setup(Level.Trial)
+		public void build() {
+			super.build();
+			onEventThread(new Runnable() {
+				public void run() {
+					treeTable = new SortableTreeTable(model);
+					TreeTableNode root = model.getRoot();
+					expand(new TreePath(root), EXPANDED_LEVELS);
+				}
+			});
+		}
+
+		private void expand(TreePath path, int levels) {
+			treeTable.expandPath(path);
+			TreeTableNode node = (TreeTableNode) path.getLastPathComponent();
+			if (levels == 0) {
+				return;
+			}
+			for (int i = 0; i < node.getChildCount(); i++) {
+				TreeTableNode child = node.getChildAt(i);
+				if (!child.isLeaf()) {
+					expand(path.pathByAddingChild(child), levels - 1);
+				}
+			}
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Collapsed extends Expanded {
+
+		@Setup(Level.Invocation)
+		public void collapse() {
+			onEventThread(new Runnable() {
+				public void run() {
+					// the tree collapses, the model keeps the expanded paths
+					TreeModelEvent e = new TreeModelEvent(model, new TreePath(
+							model.getRoot()));
+					for (TreeModelListener l : model.getTreeModelListeners()) {
+						l.treeStructureChanged(e);
+					}
+				}
+			});
+		}
+	}
+
+	@Benchmark
+	public int insertNodeInto(Inserted tree) {
+		tree.model.insertNodeInto(tree.extra, tree.parent);
+		return tree.parent.getChildCount();
+	}
+
+	@Benchmark
+	public int removeNodeFromParent(Removed tree) {
+		tree.model.removeNodeFromParent(tree.extra);
+		return tree.parent.getChildCount();
+	}
+
+	@Benchmark
+	public SortOrder sort(Tree tree) {
+		tree.flip = !tree.flip;
+		tree.model.setSortOrder((tree.flip) ? SortOrder.DESCENDING
+				: SortOrder.ASCENDING);
+		return tree.model.getSortOrder();
+	}
+
+	@Benchmark
+	public SortOrder sortExpanded(final Expanded tree) {
+		tree.flip = !tree.flip;
+		onEventThread(new Runnable() {
+			public void run() {
+				tree.model.setSortOrder((tree.flip) ? SortOrder.DESCENDING
+						: SortOrder.ASCENDING);
+			}
+		});
+		return tree.model.getSortOrder();
+	}
+
+	@Benchmark
+	public int reExpand(final Collapsed tree) {
+		onEventThread(new Runnable() {
+			public void run() {
+				tree.model.reExpand();
+			}
+		});
+		return tree.treeTable.getRowCount();
+	}
+
+	// ======================================================= private methods
+
+	private static void onEventThread(Runnable runnable) {
+		try {
+			SwingUtilities.invokeAndWait(runnable);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (InvocationTargetException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+}
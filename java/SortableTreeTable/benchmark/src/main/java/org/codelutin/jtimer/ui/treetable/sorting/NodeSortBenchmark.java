@@ -0,0 +1,92 @@
+/** NodeSortBenchmark.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.codelutin.jtimer.ui.treetable.sorting.SymbolTrees.Shape;
+import org.codelutin.jtimer.ui.treetable.sorting.SymbolTrees.SymbolNode;
+import org.jdesktop.swingx.decorator.SortKey;
+import org.jdesktop.swingx.decorator.SortOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sorting the children of a single wide node, by one column of each type.
+ * <br>
+ * Each invocation sorts in the opposite direction to the last, so no sort
+ * starts from children already in order.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g", "-Djava.awt.headless=true" })
+@State(Scope.Thread)
+public class NodeSortBenchmark {
+
+	/**
+	 * Column to sort by
+	 */
+	public enum Column {
+		STRING(SymbolTrees.NAME),
+		NUMERIC(SymbolTrees.PRICE),
+		DATE(SymbolTrees.DATE),
+		/** nine values in ten are null */
+		SPARSE(SymbolTrees.DIVIDEND);
+
+		final int index;
+
+		Column(int index) {
+			this.index = index;
+		}
+	}
+
+	@Param({ "1000", "10000", "100000", "1000000" })
+	int size;
+
+	@Param
+	Column column;
+
+	private SymbolNode node;
+	private List<SortKey> ascending;
+	private List<SortKey> descending;
+	private boolean flip = false;
+
+	@Setup
+	public void build() {
+		node = SymbolTrees.build(Shape.WIDE, size, 42);
+		ascending = Collections.singletonList(
+				new SortKey(SortOrder.ASCENDING, column.index));
+		descending = Collections.singletonList(
+				new SortKey(SortOrder.DESCENDING, column.index));
+	}
+
+	@Benchmark
+	public int sort() {
+		flip = !flip;
+		node.sort((flip) ? ascending : descending, null, 0);
+		return node.convertRowIndexToModel(0);
+	}
+
+	@Benchmark
+	public Object presortChildren() {
+		flip = !flip;
+		node.presortChildren(column.index, flip);
+		return node.getChildAt(0);
+	}
+}
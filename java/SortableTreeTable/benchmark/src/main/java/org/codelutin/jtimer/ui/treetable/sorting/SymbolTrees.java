@@ -0,0 +1,168 @@
+/** SymbolTrees.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.yccheok.jstock.engine.StockDatabaseLoader;
+import org.yccheok.jstock.engine.SymbolTable;
+
+/**
+ * Builds trees of stock symbols for the benchmarks, from the symbol lists in
+ * database.zip.<br>
+ * Each node has the code and name of a symbol, and generated price, volume,
+ * date and dividend columns. The dividend is null for nine nodes in ten.
+ * Where more nodes are asked for than there are symbols, the symbols are used
+ * again with the code suffixed, so names repeat and some rows tie.
+ * <p>
+ * The zip is looked for at ../../../database/database.zip, i.e. relative to
+ * the benchmark directory, unless the jstock.database property is set. It is
+ * read by StockDatabaseLoader, so quoted fields are parsed as JStock does.
+ */
+final class SymbolTrees {
+
+	static final int CODE = 0;
+	static final int NAME = 1;
+	static final int PRICE = 2;
+	static final int VOLUME = 3;
+	static final int DATE = 4;
+	static final int DIVIDEND = 5;
+
+	static final List<String> COLUMNS = Collections.unmodifiableList(
+			Arrays.asList("Code", "Name", "Price", "Volume", "Date",
+					"Dividend"));
+
+	/**
+	 * Shape of the tree
+	 */
+	enum Shape {
+		/** all nodes are children of the root */
+		WIDE,
+		/** each node has FAN_OUT children, filled breadth first */
+		DEEP
+	}
+
+	static final int FAN_OUT = 4;
+
+	private static List<String[]> symbols = null;
+
+	private SymbolTrees() {
+	}
+
+	/**
+	 * A node with the values of one symbol
+	 */
+	static final class SymbolNode extends AbstractSortableTreeTableNode {
+
+		private final Object[] values;
+
+		SymbolNode(Object[] values) {
+			super(values[CODE]);
+			this.values = values;
+		}
+
+		@Override
+		public Object getValueAt(int column) {
+			return values[column];
+		}
+
+		@Override
+		public int getColumnCount() {
+			return values.length;
+		}
+
+		@Override
+		public String toString() {
+			return (String) values[CODE];
+		}
+	}
+
+	/**
+	 * Build a tree of count nodes below the root. The same seed gives the same
+	 * tree.
+	 */
+	static SymbolNode build(Shape shape, int count, long seed) {
+		List<SymbolNode> nodes = nodes(count, seed);
+		SymbolNode root = new SymbolNode(new Object[] { "root", "root", null,
+				null, null, null });
+		if (shape == Shape.WIDE) {
+			for (SymbolNode node : nodes) {
+				root.add(node);
+			}
+			return root;
+		}
+		// breadth first: the first FAN_OUT nodes are children of root, and
+		// node i is the parent of nodes FAN_OUT * (i + 1) onwards
+		for (int i = 0; i < nodes.size(); i++) {
+			SymbolNode parent = (i < FAN_OUT) ? root
+					: nodes.get(i / FAN_OUT - 1);
+			parent.add(nodes.get(i));
+		}
+		return root;
+	}
+
+	/**
+	 * count unattached nodes, in the order of the symbol lists
+	 */
+	static List<SymbolNode> nodes(int count, long seed) {
+		List<String[]> symbols = symbols();
+		Random random = new Random(seed);
+		// the date of the symbol lists
+		long now = 1347840000000L;
+		List<SymbolNode> nodes = new ArrayList<SymbolNode>(count);
+		for (int i = 0; i < count; i++) {
+			String[] symbol = symbols.get(i % symbols.size());
+			int copy = i / symbols.size();
+			String code = (copy == 0) ? symbol[0] : symbol[0] + "#" + copy;
+			Object[] values = new Object[6];
+			values[CODE] = code;
+			values[NAME] = symbol[1];
+			values[PRICE] = Double.valueOf(random.nextInt(100000) / 100.0);
+			values[VOLUME] = Long.valueOf(random.nextInt(10000000));
+			values[DATE] = new Date(now - random.nextInt(1000) * 86400000L);
+			values[DIVIDEND] = (random.nextInt(10) == 0)
+					? Double.valueOf(random.nextInt(1000) / 100.0) : null;
+			nodes.add(new SymbolNode(values));
+		}
+		return nodes;
+	}
+
+	/**
+	 * The code and name of every symbol in database.zip, read once
+	 */
+	static synchronized List<String[]> symbols() {
+		if (symbols != null) {
+			return symbols;
+		}
+		String path = System.getProperty("jstock.database",
+				"../../../database/database.zip");
+		List<String[]> result = new ArrayList<String[]>();
+		try {
+			for (SymbolTable table : new StockDatabaseLoader(new File(path))
+					.loadAll().values()) {
+				for (int row = 0; row < table.size(); row++) {
+					result.add(new String[] { table.getCode(row),
+							table.getSymbol(row) });
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot read symbols from "
+					+ path + ", set -Djstock.database", e);
+		}
+		if (result.isEmpty()) {
+			throw new IllegalStateException("No symbols in " + path);
+		}
+		symbols = result;
+		return symbols;
+	}
+}
@@ -0,0 +1,167 @@
+/** SymbolLoadBenchmark.java                          JStock
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.yccheok.jstock.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading every country's stock-info-database.csv from database.zip, once
+ * warmed up and as the first load of a fresh JVM, as at startup, and in
+ * parallel on 1 to 8 threads, against mapping the compiled
+ * {@link SymbolDatabase}. Also building and searching its
+ * {@link SymbolSearchIndex}.<br>
+ * The zip is looked for at ../../../database/database.zip, unless the
+ * jstock.database property is set.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 3, jvmArgsAppend = { "-Xmx1g" })
+@State(Scope.Thread)
+public class SymbolLoadBenchmark {
+
+	File zip;
+
+	@Setup
+	public void locate() {
+		zip = database();
+	}
+
+	static File database() {
+		return new File(System.getProperty("jstock.database",
+				"../../../database/database.zip"));
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@Warmup(iterations = 5, time = 1)
+	@Measurement(iterations = 5, time = 2)
+	public Map<String, SymbolTable> loadAll() throws IOException {
+		return new StockDatabaseLoader(zip).loadAll();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 0)
+	@Measurement(iterations = 1)
+	public Map<String, SymbolTable> loadAllCold() throws IOException {
+		return new StockDatabaseLoader(zip).loadAll();
+	}
+
+	@State(Scope.Thread)
+	public static class Compiled {
+
+		File file;
+		SymbolDatabase database;
+		SymbolSearchIndex index;
+		String[] codes;
+		int next = 0;
+
+		@Setup
+		public void compile() throws IOException {
+			file = File.createTempFile("symbols", ".db");
+			database = SymbolDatabase.open(database(), file);
+			index = SymbolSearchIndex.build(database);
+			codes = new String[1024];
+			for (int i = 0; i < codes.length; i++) {
+				codes[i] = database.getCode((int) ((long) i * database.size()
+						/ codes.length));
+			}
+		}
+
+		@TearDown
+		public void delete() {
+			file.delete();
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 0)
+	@Measurement(iterations = 1)
+	public SymbolDatabase mapCold(Compiled compiled) throws IOException {
+		return SymbolDatabase.open(zip, compiled.file);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	@Warmup(iterations = 5, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	public int indexOfMapped(Compiled compiled) {
+		String code = compiled.codes[compiled.next++ & (compiled.codes.length - 1)];
+		return compiled.database.indexOf(code);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@Warmup(iterations = 5, time = 1)
+	@Measurement(iterations = 5, time = 2)
+	public SymbolSearchIndex buildSearchIndex(Compiled compiled) {
+		return SymbolSearchIndex.build(compiled.database);
+	}
+
+	/**
+	 * The first ten matches of a prefix of a code, over all countries
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 5, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	public int[] search(Compiled compiled) {
+		String code = compiled.codes[compiled.next++ & (compiled.codes.length - 1)];
+		return compiled.index.search(code.substring(0, (code.length() + 1) / 2),
+				10);
+	}
+
+	@State(Scope.Thread)
+	public static class Pool {
+
+		@Param({ "1", "2", "4", "8" })
+		int threads;
+
+		ExecutorService executor;
+
+		@Setup
+		public void start() {
+			executor = Executors.newFixedThreadPool(threads);
+		}
+
+		@TearDown
+		public void stop() {
+			executor.shutdown();
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@Warmup(iterations = 5, time = 1)
+	@Measurement(iterations = 5, time = 2)
+	public SymbolIndex loadAllParallel(Pool pool) throws IOException,
+			InterruptedException {
+		SymbolIndex index = new StockDatabaseLoader(zip).loadAll(pool.executor,
+				null, null);
+		index.await();
+		return index;
+	}
+}
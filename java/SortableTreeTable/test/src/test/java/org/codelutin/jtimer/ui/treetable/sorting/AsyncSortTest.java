@@ -0,0 +1,189 @@
+/** AsyncSortTest.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import javax.swing.SwingUtilities;
+
+import org.jdesktop.swingx.decorator.SortOrder;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Background sorts are installed unless superseded: a later sort of the tree,
+ * or a change of the sort keys, drops them. Nodes sorted or changed
+ * meanwhile keep their newer order, and values changed meanwhile are placed
+ * again.
+ */
+public class AsyncSortTest {
+
+	private TestNode root;
+	private TestNode inner;
+	private SortableTreeTableModel model;
+	// the background sorts waiting to run
+	private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+	@Before
+	public void setUp() {
+		root = TestNode.withChildren("c", 4);
+		inner = TestNode.withChildren("i", 3);
+		inner.values[TestNode.NAME] = "inner";
+		inner.values[TestNode.VALUE] = 9;
+		root.add(inner);
+		model = new SortableTreeTableModel(root, TestNode.COLUMNS);
+		model.setSortOptions("Value", SortOrder.ASCENDING);
+		model.setSortExecutor(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				tasks.add(command);
+			}
+		});
+	}
+
+	@Test
+	public void sortAsync() throws Exception {
+		model.setSortOrder(SortOrder.DESCENDING);
+		// sorted at once
+		assertEquals("inner c0 c1 c2 c3", TestNode.shown(root));
+		setValue(root, "c3", 7);
+		model.sortAsync();
+		assertEquals("inner c0 c1 c2 c3", TestNode.shown(root));
+		runTasks();
+		assertEquals("inner c3 c0 c1 c2", TestNode.shown(root));
+		assertEquals("i0 i1 i2", TestNode.shown(inner));
+	}
+
+	@Test
+	public void keysChangedInBatchDropSort() throws Exception {
+		setValue(root, "c3", 7);
+		model.beginBatch();
+		model.setSortOrder(SortOrder.DESCENDING);
+		model.endBatch();
+		model.sortAsync();
+		model.beginBatch();
+		model.setSortOrder(SortOrder.ASCENDING);
+		model.endBatch();
+		assertEquals("c2 c1 c0 c3 inner", TestNode.shown(root));
+		runTasks();
+		assertEquals("c2 c1 c0 c3 inner", TestNode.shown(root));
+		assertEquals("i2 i1 i0", TestNode.shown(inner));
+	}
+
+	@Test
+	public void laterSortDropsSort() throws Exception {
+		model.sortAsync();
+		setValue(root, "c3", 7);
+		model.sort();
+		assertEquals("c2 c1 c0 c3 inner", TestNode.shown(root));
+		runTasks();
+		assertEquals(0, tasks.size());
+		assertEquals("c2 c1 c0 c3 inner", TestNode.shown(root));
+	}
+
+	@Test
+	public void sortInBatchDropsSort() throws Exception {
+		model.sortAsync();
+		setValue(root, "c3", 7);
+		model.beginBatch();
+		model.sort();
+		model.endBatch();
+		runTasks();
+		assertEquals(0, tasks.size());
+		assertEquals("c2 c1 c0 c3 inner", TestNode.shown(root));
+	}
+
+	@Test
+	public void sortOfSubtreeKeepsItsOrder() throws Exception {
+		model.setSortOrder(SortOrder.DESCENDING);
+		model.sortAsync();
+		setValue(inner, "i2", 5);
+		model.sort(inner);
+		assertEquals("i2 i0 i1", TestNode.shown(inner));
+		runTasks();
+		assertEquals(0, tasks.size());
+		// the subtree sorted later is not reverted to the snapshot
+		assertEquals("inner c0 c1 c2 c3", TestNode.shown(root));
+		assertEquals("i2 i0 i1", TestNode.shown(inner));
+	}
+
+	@Test
+	public void insertKeepsItsOrder() throws Exception {
+		model.setSortOrder(SortOrder.DESCENDING);
+		model.sortAsync();
+		model.insertNodeInto(new TestNode("X", 1), inner, 0);
+		runTasks();
+		assertEquals(0, tasks.size());
+		assertEquals("inner c0 c1 c2 c3", TestNode.shown(root));
+		assertEquals("i0 X i1 i2", TestNode.shown(inner));
+	}
+
+	@Test
+	public void valueChangedWhileSortingIsPlaced() throws Exception {
+		setValue(root, "c3", 7);
+		model.sortAsync();
+		TestNode c1 = (TestNode) root.getChildAtModel(1);
+		c1.values[TestNode.VALUE] = 8;
+		model.valueChanged(c1, TestNode.VALUE);
+		// published, not started again
+		tasks.remove(0).run();
+		flushEventQueue();
+		assertEquals(0, tasks.size());
+		assertEquals("c2 c0 c3 c1 inner", TestNode.shown(root));
+		assertEquals(3, root.getIndex(c1));
+	}
+
+	@Test
+	public void valuesChangingThroughoutStillPublish() throws Exception {
+		setValue(root, "c3", 7);
+		model.sortAsync();
+		for (int i = 0; i < 3; i++) {
+			TestNode c0 = (TestNode) root.getChildAtModel(0);
+			c0.values[TestNode.VALUE] = 10 + i;
+			model.valueChanged(c0, TestNode.VALUE);
+		}
+		runTasks();
+		assertEquals("c2 c1 c3 inner c0", TestNode.shown(root));
+	}
+
+	/**
+	 * Set the value of the child of parent named name, outside the model
+	 */
+	private static void setValue(TestNode parent, String name, int value) {
+		for (int i = 0; i < parent.getChildCount(); i++) {
+			TestNode child = (TestNode) parent.getChildAt(i);
+			if (child.toString().equals(name)) {
+				child.values[TestNode.VALUE] = value;
+				return;
+			}
+		}
+		throw new IllegalArgumentException(name);
+	}
+
+	/**
+	 * Run the background sorts, and any they start, each then installed on
+	 * the EDT
+	 */
+	private void runTasks() throws Exception {
+		while (!tasks.isEmpty()) {
+			tasks.remove(0).run();
+			flushEventQueue();
+		}
+	}
+
+	private static void flushEventQueue() throws Exception {
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				// installed
+			}
+		});
+	}
+}
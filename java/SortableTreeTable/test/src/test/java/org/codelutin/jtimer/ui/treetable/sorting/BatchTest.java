@@ -0,0 +1,126 @@
+/** BatchTest.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+
+import org.jdesktop.swingx.decorator.SortOrder;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Changes within a batch are sorted and notified once, when the outermost
+ * batch ends, as a structure change of the highest changed node.
+ */
+public class BatchTest {
+
+	private TestNode root;
+	private TestNode inner;
+	private SortableTreeTableModel model;
+	private final List<String> events = new ArrayList<String>();
+
+	@Before
+	public void setUp() {
+		root = TestNode.withChildren("c", 3);
+		inner = TestNode.withChildren("i", 3);
+		inner.values[TestNode.NAME] = "inner";
+		inner.values[TestNode.VALUE] = 9;
+		root.add(inner);
+		model = new SortableTreeTableModel(root, TestNode.COLUMNS);
+		model.setSortOptions("Value", SortOrder.ASCENDING);
+		model.addTreeModelListener(new TreeModelListener() {
+			@Override
+			public void treeNodesChanged(TreeModelEvent e) {
+				events.add("changed");
+			}
+
+			@Override
+			public void treeNodesInserted(TreeModelEvent e) {
+				events.add("inserted");
+			}
+
+			@Override
+			public void treeNodesRemoved(TreeModelEvent e) {
+				events.add("removed");
+			}
+
+			@Override
+			public void treeStructureChanged(TreeModelEvent e) {
+				events.add("structure " + e.getTreePath().getLastPathComponent());
+			}
+		});
+	}
+
+	@Test
+	public void sortedWhenTheBatchEnds() {
+		model.beginBatch();
+		model.insertNodeInto(new TestNode("X", 5), root, 0);
+		model.insertNodeInto(new TestNode("Y", -1), root, root.getChildCount());
+		// in model order meanwhile
+		assertEquals("X c0 c1 c2 inner Y", TestNode.shown(root));
+		assertEquals(0, events.size());
+		model.endBatch();
+		assertEquals("Y c2 c1 c0 X inner", TestNode.shown(root));
+		assertEquals("[structure root]", events.toString());
+	}
+
+	@Test
+	public void onlyTheOutermostBatchEnds() {
+		model.beginBatch();
+		model.beginBatch();
+		model.insertNodeInto(new TestNode("X", 5), inner, 0);
+		model.endBatch();
+		assertEquals(0, events.size());
+		model.endBatch();
+		assertEquals("i2 i1 i0 X", TestNode.shown(inner));
+		assertEquals("[structure inner]", events.toString());
+	}
+
+	@Test
+	public void descendantsSortedWithTheirAncestor() {
+		model.runBatch(new Runnable() {
+			@Override
+			public void run() {
+				model.insertNodeInto(new TestNode("X", 5), inner, 0);
+				model.removeNodeFromParent((TestNode) root.getChildAtModel(0));
+				model.sort(inner);
+			}
+		});
+		assertEquals("c2 c1 inner", TestNode.shown(root));
+		assertEquals("i2 i1 i0 X", TestNode.shown(inner));
+		assertEquals("[structure root]", events.toString());
+	}
+
+	@Test
+	public void batchEndsDespiteAnException() {
+		try {
+			model.runBatch(new Runnable() {
+				@Override
+				public void run() {
+					model.insertNodeInto(new TestNode("X", 5), root, 0);
+					throw new IllegalStateException();
+				}
+			});
+			fail();
+		} catch (IllegalStateException e) {
+			// thrown by the task
+		}
+		assertEquals("c2 c1 c0 X inner", TestNode.shown(root));
+		assertEquals("[structure root]", events.toString());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void endWithoutBegin() {
+		model.endBatch();
+	}
+}
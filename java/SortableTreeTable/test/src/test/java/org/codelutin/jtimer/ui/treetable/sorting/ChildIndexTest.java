@@ -0,0 +1,98 @@
+/** ChildIndexTest.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Inserting and removing children of a node which keeps an index of its
+ * children. SwingX calls back into getIndex from setParent while a child is
+ * being inserted or removed.
+ */
+public class ChildIndexTest {
+
+	private TestNode parent;
+
+	@Before
+	public void setUp() {
+		parent = TestNode.withChildren("c", 5);
+		parent.setChildIndexed(true);
+		// build the index
+		assertEquals(2, parent.getIndex(parent.getChildAt(2)));
+	}
+
+	@Test
+	public void removeFromParentRemovesOnlyThatChild() {
+		TestNode c2 = (TestNode) parent.getChildAt(2);
+		c2.removeFromParent();
+		assertEquals("c0 c1 c3 c4", TestNode.shown(parent));
+		assertNull(c2.getParent());
+		assertIndexes();
+	}
+
+	@Test
+	public void removeAtRemovesOnlyThatChild() {
+		parent.remove(1);
+		assertEquals("c0 c2 c3 c4", TestNode.shown(parent));
+		assertIndexes();
+	}
+
+	@Test
+	public void insertKeepsThePosition() {
+		TestNode x = new TestNode("X", 9);
+		parent.insert(x, 1);
+		assertEquals("c0 X c1 c2 c3 c4", TestNode.shown(parent));
+		assertSame(parent, x.getParent());
+		assertIndexes();
+	}
+
+	@Test
+	public void appendAndRemoveLast() {
+		TestNode x = new TestNode("X", 9);
+		parent.add(x);
+		assertEquals("c0 c1 c2 c3 c4 X", TestNode.shown(parent));
+		assertIndexes();
+		x.removeFromParent();
+		assertEquals("c0 c1 c2 c3 c4", TestNode.shown(parent));
+		assertIndexes();
+	}
+
+	@Test
+	public void moveToAnotherParent() {
+		TestNode other = TestNode.withChildren("o", 2);
+		other.setChildIndexed(true);
+		TestNode c3 = (TestNode) parent.getChildAt(3);
+		other.insert(c3, 1);
+		assertEquals("c0 c1 c2 c4", TestNode.shown(parent));
+		assertEquals("o0 c3 o1", TestNode.shown(other));
+		assertIndexes();
+		assertEquals(1, other.getIndex(c3));
+	}
+
+	@Test
+	public void insertIntoModel() {
+		SortableTreeTableModel model = new SortableTreeTableModel(parent,
+				TestNode.COLUMNS);
+		TestNode x = new TestNode("X", 9);
+		model.insertNodeInto(x, parent, 1);
+		assertEquals(6, parent.getChildCount());
+		assertEquals(1, parent.getIndex(x));
+		model.removeNodeFromParent((TestNode) parent.getChildAt(3));
+		assertEquals("c0 X c1 c3 c4", TestNode.shown(parent));
+		assertIndexes();
+	}
+
+	private void assertIndexes() {
+		for (int i = 0; i < parent.getChildCount(); i++) {
+			assertEquals(i, parent.getIndex(parent.getChildAt(i)));
+		}
+	}
+}
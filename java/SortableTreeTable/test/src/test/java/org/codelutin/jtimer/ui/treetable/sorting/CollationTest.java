@@ -0,0 +1,79 @@
+/** CollationTest.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import static org.junit.Assert.assertEquals;
+
+import java.text.Collator;
+import java.util.Locale;
+
+import org.jdesktop.swingx.decorator.SortOrder;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Strings are sorted by the model's collator, if any, and by UTF-16 code
+ * unit otherwise.
+ */
+public class CollationTest {
+
+	private TestNode root;
+	private SortableTreeTableModel model;
+
+	@Before
+	public void setUp() {
+		root = new TestNode("root", null);
+		root.add(new TestNode("zinc", 0));
+		root.add(new TestNode("\u00e9tain", 1));
+		root.add(new TestNode("Argent", 2));
+		root.add(new TestNode("fer", 3));
+		model = new SortableTreeTableModel(root, TestNode.COLUMNS);
+	}
+
+	@Test
+	public void byCodeUnit() {
+		model.setSortOptions("Name", SortOrder.ASCENDING);
+		assertEquals("Argent fer zinc \u00e9tain", TestNode.shown(root));
+	}
+
+	@Test
+	public void byCollator() {
+		model.setCollator(Collator.getInstance(Locale.FRENCH));
+		model.setSortOptions("Name", SortOrder.ASCENDING);
+		assertEquals("Argent \u00e9tain fer zinc", TestNode.shown(root));
+		model.setSortOrder(SortOrder.DESCENDING);
+		assertEquals("zinc fer \u00e9tain Argent", TestNode.shown(root));
+	}
+
+	@Test
+	public void resortedWhenSet() {
+		model.setSortOptions("Name", SortOrder.ASCENDING);
+		model.setCollator(Collator.getInstance(Locale.FRENCH));
+		assertEquals("Argent \u00e9tain fer zinc", TestNode.shown(root));
+		model.setCollator(null);
+		assertEquals("Argent fer zinc \u00e9tain", TestNode.shown(root));
+	}
+
+	@Test
+	public void otherColumnsUnaffected() {
+		model.setCollator(Collator.getInstance(Locale.FRENCH));
+		model.setSortOptions("Value", SortOrder.DESCENDING);
+		assertEquals("fer Argent \u00e9tain zinc", TestNode.shown(root));
+	}
+
+	@Test
+	public void chinese() {
+		root = new TestNode("root", null);
+		// zhong, ai, bei in pinyin
+		root.add(new TestNode("\u4e2d", 0));
+		root.add(new TestNode("\u7231", 1));
+		root.add(new TestNode("\u5317", 2));
+		model = new SortableTreeTableModel(root, TestNode.COLUMNS);
+		model.setCollator(Collator.getInstance(Locale.CHINA));
+		model.setSortOptions("Name", SortOrder.ASCENDING);
+		assertEquals("\u7231 \u5317 \u4e2d", TestNode.shown(root));
+	}
+}
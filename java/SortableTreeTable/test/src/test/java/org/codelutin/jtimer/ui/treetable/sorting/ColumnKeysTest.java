@@ -0,0 +1,100 @@
+/** ColumnKeysTest.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Keys of a single type are held unboxed, and revert to objects when a
+ * value of another type is set.
+ */
+public class ColumnKeysTest {
+
+	private ColumnKeys keys;
+
+	@Before
+	public void setUp() {
+		keys = new ColumnKeys();
+	}
+
+	@Test
+	public void integersUnboxed() {
+		load(3, null, 1);
+		assertEquals(ColumnKeys.LONG, keys.kind);
+		assertTrue(keys.compare(2, 0) < 0);
+		// nulls first
+		assertTrue(keys.compare(1, 2) < 0);
+		assertEquals(0, keys.compare(0, 0));
+		// the values are not held
+		assertNull(keys.objects[0]);
+	}
+
+	@Test
+	public void doublesUnboxed() {
+		load(2.5, -1.0, Double.NaN);
+		assertEquals(ColumnKeys.DOUBLE, keys.kind);
+		assertTrue(keys.compare(1, 0) < 0);
+		assertTrue(keys.compare(0, 2) < 0);
+	}
+
+	@Test
+	public void datesUnboxed() {
+		load(new Date(2000), new Date(1000));
+		assertEquals(ColumnKeys.LONG, keys.kind);
+		assertTrue(keys.compare(0, 1) > 0);
+	}
+
+	@Test
+	public void mixedTypesHeldAsObjects() {
+		load(1, 2L);
+		assertEquals(ColumnKeys.OBJECT, keys.kind);
+		load("b", "a", null);
+		assertEquals(ColumnKeys.OBJECT, keys.kind);
+		assertTrue(keys.compare(0, 1) > 0);
+		assertTrue(keys.compare(2, 1) < 0);
+	}
+
+	@Test
+	public void otherTypeSetBoxesAll() {
+		load(3, 1);
+		keys.set(1, 5);
+		assertEquals(ColumnKeys.LONG, keys.kind);
+		assertTrue(keys.compare(0, 1) < 0);
+		keys.set(0, 2L);
+		assertEquals(ColumnKeys.OBJECT, keys.kind);
+		assertEquals(2L, keys.objects[0]);
+		assertEquals(5, keys.objects[1]);
+	}
+
+	@Test
+	public void insertAndRemoveMoveTheKeys() {
+		load(3, 1);
+		keys.insert(1, 2);
+		assertEquals(3, keys.count);
+		assertTrue(keys.compare(2, 1) < 0);
+		assertTrue(keys.compare(1, 0) < 0);
+		keys.remove(0);
+		assertEquals(2, keys.count);
+		assertTrue(keys.compare(0, 1) > 0);
+	}
+
+	private void load(Object... values) {
+		List<TestNode> children = new ArrayList<TestNode>();
+		for (Object value : values) {
+			children.add(new TestNode("n", value));
+		}
+		keys.load(children, TestNode.VALUE, null);
+	}
+}
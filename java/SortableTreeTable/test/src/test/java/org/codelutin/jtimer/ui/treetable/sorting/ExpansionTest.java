@@ -0,0 +1,167 @@
+/** ExpansionTest.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+import javax.swing.tree.TreePath;
+
+import org.jdesktop.swingx.decorator.SortOrder;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * The expanded paths are tracked as the TreeTable expands and collapses
+ * them, and expanded again after a sort rebuilds the tree, only within the
+ * node sorted.
+ */
+public class ExpansionTest {
+
+	private TestNode root;
+	private SortableTreeTableModel model;
+	private SortableTreeTable table;
+
+	@Before
+	public void setUp() throws Exception {
+		root = TestNode.withChildren("a", 4);
+		for (int i = 0; i < 4; i++) {
+			TestNode a = (TestNode) root.getChildAt(i);
+			for (int j = 0; j < 3; j++) {
+				TestNode b = new TestNode(a + "b" + j, j);
+				b.add(new TestNode(b + "c", 0));
+				a.add(b);
+			}
+		}
+		model = new SortableTreeTableModel(root, TestNode.COLUMNS);
+		// a structure change for every sort which moves a node
+		model.setMoveThreshold(0);
+		onEDT(new Runnable() {
+			@Override
+			public void run() {
+				table = new SortableTreeTable(model);
+				table.expandPath(path(1));
+				table.expandPath(path(2));
+			}
+		});
+	}
+
+	@Test
+	public void expandedAgainAfterSort() throws Exception {
+		onEDT(new Runnable() {
+			@Override
+			public void run() {
+				model.setSortOptions("Value", SortOrder.ASCENDING);
+				assertTrue(table.isExpanded(path(1)));
+				assertTrue(table.isExpanded(path(2)));
+				assertFalse(table.isExpanded(path(0)));
+			}
+		});
+	}
+
+	@Test
+	public void collapsedStayCollapsed() throws Exception {
+		onEDT(new Runnable() {
+			@Override
+			public void run() {
+				table.collapsePath(path(1));
+				model.setSortOptions("Value", SortOrder.ASCENDING);
+				assertFalse(table.isExpanded(path(1)));
+				assertTrue(table.isExpanded(path(2)));
+			}
+		});
+	}
+
+	@Test
+	public void removedForgotten() throws Exception {
+		onEDT(new Runnable() {
+			@Override
+			public void run() {
+				TreePath a1 = path(1);
+				TreePath a2 = path(2);
+				TestNode node = (TestNode) a2.getLastPathComponent();
+				model.removeNodeFromParent(node);
+				model.insertNodeInto(node, root, 0);
+				model.setSortOptions("Value", SortOrder.ASCENDING);
+				assertFalse(table.isExpanded(a2));
+				assertTrue(table.isExpanded(a1));
+			}
+		});
+	}
+
+	@Test
+	public void onlyWithinTheSortedNode() throws Exception {
+		final List<Integer> replayed = new ArrayList<Integer>();
+		onEDT(new Runnable() {
+			@Override
+			public void run() {
+				model.setSortOptions("Value", SortOrder.ASCENDING);
+				TreePath a2 = path(2);
+				TestNode node = (TestNode) a2.getLastPathComponent();
+				TreePath b0 = a2.pathByAddingChild(node.getChildAtModel(0));
+				table.expandPath(b0);
+				model.setMetricsListener(new ReExpansions(replayed));
+				for (int j = 0; j < 3; j++) {
+					((TestNode) node.getChildAtModel(j)).values[TestNode.VALUE] = -j;
+				}
+				model.sort(node);
+				// a2 and its child, not a1
+				assertEquals("[2]", replayed.toString());
+				assertTrue(table.isExpanded(b0));
+				assertTrue(table.isExpanded(path(1)));
+			}
+		});
+	}
+
+	/**
+	 * path of the child of root at model index i
+	 */
+	private TreePath path(int i) {
+		return new TreePath(new Object[] { root, root.getChildAtModel(i) });
+	}
+
+	private static void onEDT(Runnable task) throws Exception {
+		SwingUtilities.invokeAndWait(task);
+	}
+
+	/**
+	 * Records the number of paths of each re-expansion
+	 */
+	private static class ReExpansions implements SortMetricsListener {
+
+		private final List<Integer> replayed;
+
+		ReExpansions(List<Integer> replayed) {
+			this.replayed = replayed;
+		}
+
+		@Override
+		public void sorted(int nodes, long comparisons, long nanos) {
+		}
+
+		@Override
+		public void eventFired(Event event, int rows, long nanos) {
+		}
+
+		@Override
+		public void reExpanded(int paths, long nanos) {
+			replayed.add(paths);
+		}
+
+		@Override
+		public void inserted(long nanos) {
+		}
+
+		@Override
+		public void removed(long nanos) {
+		}
+	}
+}
@@ -0,0 +1,120 @@
+/** FilterTest.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import static org.junit.Assert.assertEquals;
+
+import org.jdesktop.swingx.treetable.TreeTableNode;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Children shown and hidden by the model's filter, as they are inserted,
+ * removed and changed.
+ */
+public class FilterTest {
+
+	private TestNode parent;
+	private SortableTreeTableModel model;
+
+	@Before
+	public void setUp() {
+		parent = TestNode.withChildren("c", 5);
+		parent.setChildIndexed(true);
+		model = new SortableTreeTableModel(parent, TestNode.COLUMNS);
+	}
+
+	@Test
+	public void hidesChildren() {
+		model.setFilter(new MinValue(2));
+		assertEquals("c0 c1 c2", TestNode.shown(parent));
+		assertEquals(3, parent.getMatchCount());
+		assertIndexes();
+	}
+
+	@Test
+	public void insertAmongHiddenChildren() {
+		model.setFilter(new MinValue(10));
+		assertEquals("", TestNode.shown(parent));
+		TestNode y = new TestNode("Y", 10);
+		model.insertNodeInto(y, parent, 2);
+		assertEquals("Y", TestNode.shown(parent));
+		assertEquals(0, model.getIndexOfChild(parent, y));
+		assertEquals(2, parent.getModelIndex(y));
+		assertIndexes();
+	}
+
+	@Test
+	public void insertHidden() {
+		model.setFilter(new MinValue(2));
+		TestNode y = new TestNode("Y", 0);
+		model.insertNodeInto(y, parent, 1);
+		assertEquals("c0 c1 c2", TestNode.shown(parent));
+		assertEquals(-1, parent.getIndex(y));
+		assertIndexes();
+	}
+
+	@Test
+	public void removeShownAndHidden() {
+		TestNode c4 = (TestNode) parent.getChildAt(4);
+		model.setFilter(new MinValue(2));
+		model.removeNodeFromParent((TestNode) parent.getChildAt(1));
+		assertEquals("c0 c2", TestNode.shown(parent));
+		model.removeNodeFromParent(c4);
+		assertEquals("c0 c2", TestNode.shown(parent));
+		assertEquals(2, parent.getMatchCount());
+		assertIndexes();
+	}
+
+	@Test
+	public void valueChangedShowsTheNode() {
+		model.setFilter(new MinValue(2));
+		TestNode c4 = (TestNode) parent.getChildAtModel(4);
+		c4.values[TestNode.VALUE] = 7;
+		model.valueChanged(c4, TestNode.VALUE);
+		assertEquals("c0 c1 c2 c4", TestNode.shown(parent));
+		assertIndexes();
+	}
+
+	@Test
+	public void noFilterShowsAll() {
+		model.setFilter(new MinValue(2));
+		model.setFilter(null);
+		assertEquals("c0 c1 c2 c3 c4", TestNode.shown(parent));
+		assertIndexes();
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void childAtPastTheShown() {
+		model.setFilter(new MinValue(2));
+		parent.getChildAt(3);
+	}
+
+	private void assertIndexes() {
+		for (int i = 0; i < parent.getChildCount(); i++) {
+			assertEquals(i, parent.getIndex(parent.getChildAt(i)));
+			assertEquals(i, model.getIndexOfChild(parent, parent.getChildAt(i)));
+		}
+	}
+
+	/**
+	 * Shows the nodes whose value is at least min
+	 */
+	private static class MinValue implements NodeFilter {
+
+		private final int min;
+
+		MinValue(int min) {
+			this.min = min;
+		}
+
+		@Override
+		public boolean include(TreeTableNode node) {
+			Object value = node.getValueAt(TestNode.VALUE);
+			return value instanceof Integer && (Integer) value >= min;
+		}
+	}
+}
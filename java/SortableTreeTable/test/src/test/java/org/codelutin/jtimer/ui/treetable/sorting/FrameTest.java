@@ -0,0 +1,127 @@
+/** FrameTest.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+
+import org.jdesktop.swingx.decorator.SortOrder;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Within frames, nodes inserted or removed are notified at once, while
+ * sorts and value changes wait for the frame.
+ */
+public class FrameTest {
+
+	private TestNode root;
+	private SortableTreeTableModel model;
+	// the events fired, e.g. "inserted 1"
+	private final List<String> events = new ArrayList<String>();
+
+	@Before
+	public void setUp() {
+		root = TestNode.withChildren("c", 4);
+		model = new SortableTreeTableModel(root, TestNode.COLUMNS);
+		model.setSortOptions("Value", SortOrder.ASCENDING);
+		model.addTreeModelListener(new TreeModelListener() {
+			@Override
+			public void treeNodesChanged(TreeModelEvent e) {
+				record("changed", e);
+			}
+
+			@Override
+			public void treeNodesInserted(TreeModelEvent e) {
+				record("inserted", e);
+			}
+
+			@Override
+			public void treeNodesRemoved(TreeModelEvent e) {
+				record("removed", e);
+			}
+
+			@Override
+			public void treeStructureChanged(TreeModelEvent e) {
+				events.add("structure");
+			}
+		});
+		// not flushed during the test
+		model.setFrameInterval(60000);
+	}
+
+	@Test
+	public void insertNotifiedAtOnce() {
+		model.insertNodeInto(new TestNode("X", 1), root, 0);
+		// before c2, of the same value, as it is first in model order
+		assertEquals("c3 X c2 c1 c0", TestNode.shown(root));
+		assertEquals("[inserted 1]", events.toString());
+	}
+
+	@Test
+	public void removeNotifiedAtOnce() {
+		model.removeNodeFromParent((TestNode) root.getChildAt(1));
+		assertEquals("c3 c1 c0", TestNode.shown(root));
+		assertEquals("[removed 1]", events.toString());
+	}
+
+	@Test
+	public void unsortedInsertNotifiedAtOnce() {
+		model.setSortOrder(SortOrder.UNSORTED);
+		model.setFrameInterval(0);
+		events.clear();
+		model.setFrameInterval(60000);
+		model.insertNodeInto(new TestNode("X", 1), root, 1);
+		assertEquals("c0 X c1 c2 c3", TestNode.shown(root));
+		assertEquals("[inserted 1]", events.toString());
+	}
+
+	@Test
+	public void valueChangeWaitsForTheFrame() {
+		TestNode c3 = (TestNode) root.getChildAt(0);
+		c3.values[TestNode.VALUE] = 9;
+		model.valueChanged(c3, TestNode.VALUE);
+		assertEquals("c3 c2 c1 c0", TestNode.shown(root));
+		assertEquals("[]", events.toString());
+		model.setFrameInterval(0);
+		assertEquals("c2 c1 c0 c3", TestNode.shown(root));
+		assertEquals("[removed 0, inserted 3]", events.toString());
+	}
+
+	@Test
+	public void insertAfterValueChange() {
+		TestNode c3 = (TestNode) root.getChildAt(0);
+		c3.values[TestNode.VALUE] = 9;
+		model.valueChanged(c3, TestNode.VALUE);
+		model.insertNodeInto(new TestNode("X", 5), root, 4);
+		assertEquals("c3 c2 c1 c0 X", TestNode.shown(root));
+		assertEquals("[inserted 4]", events.toString());
+		model.setFrameInterval(0);
+		assertEquals("c2 c1 c0 X c3", TestNode.shown(root));
+	}
+
+	@Test
+	public void batchWithinFrames() {
+		model.beginBatch();
+		model.insertNodeInto(new TestNode("X", 1), root, 0);
+		model.removeNodeFromParent((TestNode) root.getChildAt(4));
+		assertEquals("[]", events.toString());
+		model.endBatch();
+		assertEquals("X c2 c1 c0", TestNode.shown(root));
+		assertEquals("[structure]", events.toString());
+	}
+
+	private void record(String event, TreeModelEvent e) {
+		for (int index : e.getChildIndices()) {
+			events.add(event + " " + index);
+		}
+	}
+}
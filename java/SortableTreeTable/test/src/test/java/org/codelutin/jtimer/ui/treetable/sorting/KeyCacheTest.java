@@ -0,0 +1,96 @@
+/** KeyCacheTest.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import static org.junit.Assert.assertEquals;
+
+import org.jdesktop.swingx.decorator.SortOrder;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * With its keys cached, a node reads the values of its children once for
+ * sorts on the same columns, until they are invalidated.
+ */
+public class KeyCacheTest {
+
+	private final int[] reads = new int[1];
+	private TestNode root;
+	private SortableTreeTableModel model;
+
+	@Before
+	public void setUp() {
+		root = new TestNode("root", null);
+		for (int i = 0; i < 5; i++) {
+			root.add(new Counted("c" + i, 4 - i));
+		}
+		root.setKeysCached(true);
+		model = new SortableTreeTableModel(root, TestNode.COLUMNS);
+	}
+
+	@Test
+	public void readOnceForEachSort() {
+		model.setSortOptions("Value", SortOrder.ASCENDING);
+		assertEquals(5, reads[0]);
+		model.sort();
+		model.setSortOrder(SortOrder.DESCENDING);
+		assertEquals("c0 c1 c2 c3 c4", TestNode.shown(root));
+		model.setSortOrder(SortOrder.ASCENDING);
+		assertEquals("c4 c3 c2 c1 c0", TestNode.shown(root));
+		assertEquals(5, reads[0]);
+	}
+
+	@Test
+	public void readAgainWhenInvalidated() {
+		model.setSortOptions("Value", SortOrder.ASCENDING);
+		((TestNode) root.getChildAtModel(0)).values[TestNode.VALUE] = -1;
+		root.invalidateKeys();
+		model.sort();
+		assertEquals(10, reads[0]);
+		assertEquals("c0 c4 c3 c2 c1", TestNode.shown(root));
+	}
+
+	@Test
+	public void changedValueResorted() {
+		model.setSortOptions("Value", SortOrder.ASCENDING);
+		TestNode c4 = (TestNode) root.getChildAtModel(4);
+		c4.values[TestNode.VALUE] = 10;
+		model.valueChanged(c4, TestNode.VALUE);
+		model.sort();
+		assertEquals("c3 c2 c1 c0 c4", TestNode.shown(root));
+	}
+
+	@Test
+	public void otherColumnRead() {
+		model.setSortOptions("Value", SortOrder.ASCENDING);
+		model.setSortOptions("Name", SortOrder.ASCENDING);
+		assertEquals(10, reads[0]);
+	}
+
+	@Test
+	public void uncachedReadEverySort() {
+		root.setKeysCached(false);
+		model.setSortOptions("Value", SortOrder.ASCENDING);
+		model.sort();
+		assertEquals(10, reads[0]);
+	}
+
+	/**
+	 * Counts the values read
+	 */
+	private class Counted extends TestNode {
+
+		Counted(String name, Object value) {
+			super(name, value);
+		}
+
+		@Override
+		public Object getValueAt(int column) {
+			reads[0]++;
+			return super.getValueAt(column);
+		}
+	}
+}
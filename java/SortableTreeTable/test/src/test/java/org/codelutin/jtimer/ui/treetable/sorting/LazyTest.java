@@ -0,0 +1,238 @@
+/** LazyTest.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.swing.SwingUtilities;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreePath;
+
+import org.jdesktop.swingx.decorator.SortOrder;
+import org.jdesktop.swingx.treetable.MutableTreeTableNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Lazy nodes are loaded only by the model, when needed, which notifies them;
+ * sorts of the whole tree skip those not loaded, in the background or in
+ * parallel too.
+ */
+public class LazyTest {
+
+	private TestNode root;
+	private LazyNode lazy;
+	private SortableTreeTableModel model;
+	private int loads = 0;
+	// thrown on the EDT, where the background sort is published
+	private Throwable thrown;
+	private Thread.UncaughtExceptionHandler handler;
+
+	@Before
+	public void setUp() {
+		root = TestNode.withChildren("c", 3);
+		lazy = new LazyNode("lazy", 5, 3);
+		root.add(lazy);
+		model = new SortableTreeTableModel(root, TestNode.COLUMNS);
+		handler = Thread.getDefaultUncaughtExceptionHandler();
+		Thread.setDefaultUncaughtExceptionHandler(
+				new Thread.UncaughtExceptionHandler() {
+			@Override
+			public void uncaughtException(Thread t, Throwable e) {
+				thrown = e;
+			}
+		});
+	}
+
+	@After
+	public void tearDown() {
+		Thread.setDefaultUncaughtExceptionHandler(handler);
+	}
+
+	@Test
+	public void notALeafBeforeLoading() {
+		assertFalse(lazy.isLeaf());
+		assertTrue(new LazyNode("empty", 0, 0).isLeaf());
+		assertFalse(lazy.isLoaded());
+		assertEquals(0, loads);
+	}
+
+	@Test
+	public void readingDoesNotLoad() {
+		assertEquals(0, model.getChildCount(lazy));
+		assertEquals(0, lazy.getChildCount());
+		assertFalse(lazy.isLoaded());
+		assertEquals(0, loads);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void noChildrenBeforeLoading() {
+		lazy.getChildAt(0);
+	}
+
+	@Test
+	public void expandLoadsAfterwards() throws Exception {
+		final List<TreePath> changed = new ArrayList<TreePath>();
+		model.addTreeModelListener(new TreeModelListener() {
+			@Override
+			public void treeStructureChanged(TreeModelEvent e) {
+				changed.add(e.getTreePath());
+			}
+
+			@Override
+			public void treeNodesRemoved(TreeModelEvent e) {
+			}
+
+			@Override
+			public void treeNodesInserted(TreeModelEvent e) {
+			}
+
+			@Override
+			public void treeNodesChanged(TreeModelEvent e) {
+			}
+		});
+		final TreePath path = new TreePath(new Object[] { root, lazy });
+		final SortableTreeTable[] table = new SortableTreeTable[1];
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				table[0] = new SortableTreeTable(model);
+				table[0].setRootVisible(true);
+				table[0].expandPath(path);
+				// not within the expansion
+				assertFalse(lazy.isLoaded());
+			}
+		});
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				assertTrue(lazy.isLoaded());
+				assertEquals(1, loads);
+				assertEquals("[" + path + "]", changed.toString());
+				assertTrue(table[0].isExpanded(path));
+				// root, its four children and the three loaded
+				assertEquals(8, table[0].getRowCount());
+			}
+		});
+	}
+
+	@Test
+	public void sortSkipsNodesNotLoaded() {
+		model.setSortOptions("Value", SortOrder.ASCENDING);
+		assertEquals("c2 c1 c0 lazy", TestNode.shown(root));
+		assertFalse(lazy.isLoaded());
+		assertEquals(0, loads);
+	}
+
+	@Test
+	public void sortOfTheNodeLoadsIt() {
+		model.setSortOptions("Value", SortOrder.ASCENDING);
+		model.sort(lazy);
+		assertTrue(lazy.isLoaded());
+		assertEquals("lazy2 lazy1 lazy0", TestNode.shown(lazy));
+	}
+
+	@Test
+	public void insertLoads() {
+		model.insertNodeInto(new TestNode("X", 9), lazy, 0);
+		assertEquals(1, loads);
+		assertEquals("X lazy0 lazy1 lazy2", TestNode.shown(lazy));
+	}
+
+	@Test
+	public void parallelSortSkipsNodesNotLoaded() {
+		model.setParallelSort(new ForkJoinPool(2), 1);
+		model.setSortOptions("Value", SortOrder.DESCENDING);
+		assertEquals("lazy c0 c1 c2", TestNode.shown(root));
+		assertFalse(lazy.isLoaded());
+	}
+
+	@Test
+	public void sortAsyncSkipsNodesNotLoaded() throws Exception {
+		model.setSortOptions("Value", SortOrder.ASCENDING);
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+		model.setSortExecutor(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				tasks.add(command);
+			}
+		});
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				model.setSortOrder(SortOrder.DESCENDING);
+				model.sortAsync();
+			}
+		});
+		assertEquals(1, tasks.size());
+		// sorts, then publishes on the EDT
+		tasks.get(0).run();
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				// published
+			}
+		});
+		assertNull(thrown);
+		assertEquals("lazy c0 c1 c2", TestNode.shown(root));
+		assertFalse(lazy.isLoaded());
+		assertEquals(0, loads);
+	}
+
+	/**
+	 * A lazy node with a name and a value, whose children are named after it
+	 */
+	private class LazyNode extends AbstractLazySortableTreeTableNode {
+
+		private final Object[] values;
+
+		LazyNode(String name, int value, final int count) {
+			super(name, new ChildLoader() {
+				@Override
+				public int countChildren(AbstractLazySortableTreeTableNode node) {
+					return count;
+				}
+
+				@Override
+				public List<? extends MutableTreeTableNode> loadChildren(
+						AbstractLazySortableTreeTableNode node) {
+					loads++;
+					List<TestNode> children = new ArrayList<TestNode>();
+					for (int i = 0; i < count; i++) {
+						children.add(new TestNode(node + "" + i, count - 1 - i));
+					}
+					return children;
+				}
+			});
+			values = new Object[] { name, value };
+		}
+
+		@Override
+		public Object getValueAt(int column) {
+			return values[column];
+		}
+
+		@Override
+		public int getColumnCount() {
+			return values.length;
+		}
+
+		@Override
+		public String toString() {
+			return (String) values[TestNode.NAME];
+		}
+	}
+}
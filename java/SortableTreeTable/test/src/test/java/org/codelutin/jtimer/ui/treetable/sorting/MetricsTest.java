@@ -0,0 +1,69 @@
+/** MetricsTest.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.jdesktop.swingx.decorator.SortOrder;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Comparisons are counted only with a metrics listener, and each kind of
+ * event is measured apart.
+ */
+public class MetricsTest {
+
+	private TestNode root;
+	private SortableTreeTableModel model;
+
+	@Before
+	public void setUp() {
+		root = TestNode.withChildren("c", 8);
+		model = new SortableTreeTableModel(root, TestNode.COLUMNS);
+	}
+
+	@Test
+	public void notCountedWithoutMetrics() {
+		model.setSortOptions("Value", SortOrder.ASCENDING);
+		model.setSortOrder(SortOrder.DESCENDING);
+		assertEquals(0, root.getComparisons());
+	}
+
+	@Test
+	public void countedWithMetrics() {
+		SortMetrics metrics = new SortMetrics();
+		model.setMetricsListener(metrics);
+		model.setSortOptions("Value", SortOrder.ASCENDING);
+		assertTrue(root.getComparisons() > 0);
+		assertEquals(root.getComparisons(), metrics.getRowsCompared());
+		model.setMetricsListener(null);
+		long compared = root.getComparisons();
+		model.setSortOrder(SortOrder.DESCENDING);
+		assertEquals(compared, root.getComparisons());
+	}
+
+	@Test
+	public void eventsMeasuredApart() {
+		model.setSortOptions("Value", SortOrder.ASCENDING);
+		// nodes are placed by their own events, not a structure change
+		model.setPreserveExpansion(true);
+		SortMetrics metrics = new SortMetrics();
+		model.setMetricsListener(metrics);
+		model.insertNodeInto(new TestNode("X", 3), root, 0);
+		model.insertNodeInto(new TestNode("Y", 4), root, 0);
+		model.removeNodeFromParent((TestNode) root.getChildAt(0));
+		assertEquals(2, metrics.getNodesInsertedCount());
+		assertEquals(2, metrics.getNodesInsertedRows());
+		assertEquals(1, metrics.getNodesRemovedCount());
+		assertEquals(1, metrics.getNodesRemovedRows());
+		assertEquals(0, metrics.getNodesChangedCount());
+		metrics.reset();
+		assertEquals(0, metrics.getNodesInsertedCount());
+		assertEquals(0, metrics.getNodesRemovedRows());
+	}
+}
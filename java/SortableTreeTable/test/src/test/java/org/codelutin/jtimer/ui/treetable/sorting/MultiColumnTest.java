@@ -0,0 +1,75 @@
+/** MultiColumnTest.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.jdesktop.swingx.decorator.SortKey;
+import org.jdesktop.swingx.decorator.SortOrder;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Children equal on the sort column are ordered by the secondary keys in
+ * turn, which are kept as the sort column's order changes.
+ */
+public class MultiColumnTest {
+
+	private TestNode root;
+	private SortableTreeTableModel model;
+
+	@Before
+	public void setUp() {
+		root = new TestNode("root", null);
+		root.add(new TestNode("b", 1));
+		root.add(new TestNode("a", 1));
+		root.add(new TestNode("c", 0));
+		root.add(new TestNode("d", 1));
+		model = new SortableTreeTableModel(root, TestNode.COLUMNS);
+	}
+
+	@Test
+	public void secondaryKeyBreaksTies() {
+		model.setSortKeys(Arrays.asList(new SortKey(SortOrder.ASCENDING,
+				TestNode.VALUE), new SortKey(SortOrder.DESCENDING, TestNode.NAME)));
+		assertEquals("c d b a", TestNode.shown(root));
+		assertEquals(SortOrder.DESCENDING, model.getColumnSortOrder(TestNode.NAME));
+		assertEquals(2, model.getSortKeys().size());
+	}
+
+	@Test
+	public void toggledKeys() {
+		model.setSortOptions("Value", SortOrder.ASCENDING);
+		// ties in model order
+		assertEquals("c b a d", TestNode.shown(root));
+		model.toggleSortKey(TestNode.NAME);
+		assertEquals("c a b d", TestNode.shown(root));
+		model.toggleSortKey(TestNode.NAME);
+		assertEquals("c d b a", TestNode.shown(root));
+		// the sort column reversed, the secondary key kept
+		model.toggleSortKey(TestNode.VALUE);
+		assertEquals("d b a c", TestNode.shown(root));
+		assertEquals(SortOrder.DESCENDING, model.getColumnSortOrder(TestNode.NAME));
+	}
+
+	@Test
+	public void sortOptionsClearSecondaryKeys() {
+		model.setSortOptions("Value", SortOrder.ASCENDING);
+		model.toggleSortKey(TestNode.NAME);
+		model.setSortOrder(SortOrder.DESCENDING);
+		assertEquals("a b d c", TestNode.shown(root));
+		model.setSortOptions("Value", SortOrder.DESCENDING);
+		assertEquals("b a d c", TestNode.shown(root));
+		assertEquals(SortOrder.UNSORTED, model.getColumnSortOrder(TestNode.NAME));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownColumn() {
+		model.setSortKeys(Arrays.asList(new SortKey(SortOrder.ASCENDING, 5)));
+	}
+}
@@ -0,0 +1,121 @@
+/** ParallelSortTest.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+
+import org.jdesktop.swingx.decorator.SortOrder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A tree sorted on a pool, in groups of siblings, is in the same order as
+ * one sorted on the calling thread, and notified once.
+ */
+public class ParallelSortTest {
+
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+	private TestNode parallel;
+	private TestNode serial;
+
+	@Before
+	public void setUp() {
+		parallel = tree(new Random(7));
+		serial = tree(new Random(7));
+	}
+
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void sameOrderAsSerial() {
+		SortableTreeTableModel model = new SortableTreeTableModel(parallel,
+				TestNode.COLUMNS);
+		model.setParallelSort(pool, 10);
+		final List<String> events = new ArrayList<String>();
+		model.addTreeModelListener(new TreeModelListener() {
+			@Override
+			public void treeNodesChanged(TreeModelEvent e) {
+				events.add("changed");
+			}
+
+			@Override
+			public void treeNodesInserted(TreeModelEvent e) {
+				events.add("inserted");
+			}
+
+			@Override
+			public void treeNodesRemoved(TreeModelEvent e) {
+				events.add("removed");
+			}
+
+			@Override
+			public void treeStructureChanged(TreeModelEvent e) {
+				events.add("structure");
+			}
+		});
+		model.setSortOptions("Value", SortOrder.DESCENDING);
+		new SortableTreeTableModel(serial, TestNode.COLUMNS).setSortOptions(
+				"Value", SortOrder.DESCENDING);
+		assertEquals(order(serial), order(parallel));
+		assertEquals("[structure]", events.toString());
+	}
+
+	@Test
+	public void withoutPoolOnTheCallingThread() {
+		SortableTreeTableModel model = new SortableTreeTableModel(parallel,
+				TestNode.COLUMNS);
+		model.setParallelSort(null, 10);
+		model.setSortOptions("Value", SortOrder.ASCENDING);
+		new SortableTreeTableModel(serial, TestNode.COLUMNS).setSortOptions(
+				"Value", SortOrder.ASCENDING);
+		assertEquals(order(serial), order(parallel));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void thresholdMustBePositive() {
+		new SortableTreeTableModel(parallel, TestNode.COLUMNS).setParallelSort(
+				pool, 0);
+	}
+
+	/*
+	 * 30 nodes of 20 children each, with values repeated so that ties are
+	 * kept in model order
+	 */
+	private static TestNode tree(Random random) {
+		TestNode root = new TestNode("root", null);
+		for (int i = 0; i < 30; i++) {
+			TestNode a = new TestNode("a" + i, random.nextInt(10));
+			for (int j = 0; j < 20; j++) {
+				a.add(new TestNode(a + "b" + j, random.nextInt(10)));
+			}
+			root.add(a);
+		}
+		return root;
+	}
+
+	/*
+	 * children of each node in turn, depth first
+	 */
+	private static String order(TestNode node) {
+		StringBuilder s = new StringBuilder(TestNode.shown(node));
+		for (int i = 0; i < node.getChildCount(); i++) {
+			s.append(" / ").append(order((TestNode) node.getChildAt(i)));
+		}
+		return s.toString();
+	}
+}
@@ -0,0 +1,92 @@
+/** PartialSortTest.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import javax.swing.SwingUtilities;
+import javax.swing.tree.TreePath;
+
+import org.jdesktop.swingx.decorator.SortOrder;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Rows of a partially sorted node read in their full order without being
+ * placed, and placed a window at a time for the rows in view.
+ */
+public class PartialSortTest {
+
+	private TestNode root;
+	private SortableTreeTableModel model;
+
+	@Before
+	public void setUp() {
+		root = TestNode.withChildren("c", 20);
+		model = new SortableTreeTableModel(root, TestNode.COLUMNS);
+		model.setPartialSort(10, 4);
+		model.setSortOptions("Value", SortOrder.ASCENDING);
+	}
+
+	@Test
+	public void readingDoesNotPlace() {
+		assertTrue(root.isPartiallySorted());
+		// c4 has value 15
+		assertEquals(4, root.convertRowIndexToModel(15));
+		assertEquals(15, root.convertRowIndexToView(4));
+		assertEquals(19, root.convertRowIndexToModel(0));
+		assertEquals(fullOrder(), TestNode.shown(root));
+		assertTrue(root.isPartiallySorted());
+	}
+
+	@Test
+	public void placingKeepsTheOrder() {
+		root.placeRows(5);
+		assertTrue(root.isPartiallySorted());
+		assertEquals(fullOrder(), TestNode.shown(root));
+		assertEquals(15, root.convertRowIndexToView(4));
+		root.placeRows(19);
+		assertFalse(root.isPartiallySorted());
+		assertEquals(fullOrder(), TestNode.shown(root));
+	}
+
+	@Test
+	public void rowsInViewPlaced() throws Exception {
+		final TestNode inner = TestNode.withChildren("i", 12);
+		inner.values[TestNode.NAME] = "inner";
+		inner.values[TestNode.VALUE] = -1;
+		model.insertNodeInto(inner, root, 0);
+		model.sort();
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				SortableTreeTable table = new SortableTreeTable(model);
+				table.expandPath(new TreePath(new Object[] { root, inner }));
+				// expanding reads every row of inner
+				assertTrue(inner.isPartiallySorted());
+				// inner at row 0, its children at rows 1 to 12
+				model.placeRows(10);
+				assertFalse(inner.isPartiallySorted());
+				assertTrue(root.isPartiallySorted());
+				model.placeRows(table.getRowCount() - 1);
+				assertFalse(root.isPartiallySorted());
+			}
+		});
+	}
+
+	private static String fullOrder() {
+		StringBuilder s = new StringBuilder();
+		for (int i = 19; i >= 0; i--) {
+			if (i < 19) {
+				s.append(' ');
+			}
+			s.append('c').append(i);
+		}
+		return s.toString();
+	}
+}
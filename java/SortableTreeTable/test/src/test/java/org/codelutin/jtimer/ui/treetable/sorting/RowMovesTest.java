@@ -0,0 +1,128 @@
+/** RowMovesTest.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+
+import org.jdesktop.swingx.decorator.SortOrder;
+import org.junit.Test;
+
+/**
+ * Only the children which moved relative to the others are notified, as
+ * removed and inserted again, unless too many moved.
+ */
+public class RowMovesTest {
+
+	private static final List<String> CHILDREN = Arrays.asList("a", "b", "c",
+			"d", "e");
+
+	@Test
+	public void oneMovedToTheEnd() {
+		RowMoves moves = moves(new int[] { 0, 1, 2, 3, 4 },
+				new int[] { 1, 2, 3, 4, 0 });
+		assertEquals(1, moves.count());
+		assertArrayEquals(new int[] { 0 }, moves.removed);
+		assertArrayEquals(new Object[] { "a" }, moves.removedChildren);
+		assertArrayEquals(new int[] { 4 }, moves.added);
+		assertTrue(moves.isMoved(4));
+	}
+
+	@Test
+	public void reversedKeepsOne() {
+		RowMoves moves = moves(new int[] { 0, 1, 2, 3, 4 },
+				new int[] { 4, 3, 2, 1, 0 });
+		assertEquals(4, moves.count());
+		assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, union(moves));
+	}
+
+	@Test
+	public void unchanged() {
+		assertEquals(0, moves(new int[] { 2, 0, 1, 3, 4 },
+				new int[] { 2, 0, 1, 3, 4 }).count());
+	}
+
+	@Test
+	public void sortNotifiesTheMoves() {
+		List<String> events = sortAfterMovingOne(0.5);
+		assertEquals("[removed [0], inserted [5]]", events.toString());
+	}
+
+	@Test
+	public void tooManyMovedIsAStructureChange() {
+		List<String> events = sortAfterMovingOne(0);
+		assertEquals("[structure]", events.toString());
+	}
+
+	/*
+	 * Sort c5 to c0, then give c5 the highest value
+	 */
+	private static List<String> sortAfterMovingOne(double threshold) {
+		TestNode root = TestNode.withChildren("c", 6);
+		SortableTreeTableModel model = new SortableTreeTableModel(root,
+				TestNode.COLUMNS);
+		model.setMoveThreshold(threshold);
+		model.setSortOptions("Value", SortOrder.ASCENDING);
+		final List<String> events = new ArrayList<String>();
+		model.addTreeModelListener(new TreeModelListener() {
+			@Override
+			public void treeNodesChanged(TreeModelEvent e) {
+				events.add("changed");
+			}
+
+			@Override
+			public void treeNodesInserted(TreeModelEvent e) {
+				events.add("inserted " + Arrays.toString(e.getChildIndices()));
+			}
+
+			@Override
+			public void treeNodesRemoved(TreeModelEvent e) {
+				events.add("removed " + Arrays.toString(e.getChildIndices()));
+			}
+
+			@Override
+			public void treeStructureChanged(TreeModelEvent e) {
+				events.add("structure");
+			}
+		});
+		((TestNode) root.getChildAtModel(5)).values[TestNode.VALUE] = 10;
+		model.sort();
+		assertEquals("c4 c3 c2 c1 c0 c5", TestNode.shown(root));
+		return events;
+	}
+
+	private static RowMoves moves(int[] oldOrder, int[] newOrder) {
+		int[] newView = new int[newOrder.length];
+		for (int i = 0; i < newOrder.length; i++) {
+			newView[newOrder[i]] = i;
+		}
+		return new RowMoves(oldOrder, newView, newOrder, CHILDREN,
+				CHILDREN.size());
+	}
+
+	/*
+	 * the old indexes moved and the one kept
+	 */
+	private static int[] union(RowMoves moves) {
+		int[] all = Arrays.copyOf(moves.removed, CHILDREN.size());
+		int n = moves.count();
+		for (int i = 0; i < CHILDREN.size(); i++) {
+			if (Arrays.binarySearch(moves.removed, i) < 0) {
+				all[n++] = i;
+			}
+		}
+		Arrays.sort(all);
+		return all;
+	}
+}
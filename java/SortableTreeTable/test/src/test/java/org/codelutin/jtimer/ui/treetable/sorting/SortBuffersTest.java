@@ -0,0 +1,63 @@
+/** SortBuffersTest.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.jdesktop.swingx.decorator.SortOrder;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * The buffers of a sort are reused by the next one, whether the node has
+ * fewer children since or more than they hold.
+ */
+public class SortBuffersTest {
+
+	private TestNode root;
+	private SortableTreeTableModel model;
+
+	@Before
+	public void setUp() {
+		root = TestNode.withChildren("c", 5);
+		model = new SortableTreeTableModel(root, TestNode.COLUMNS);
+		model.setSortOptions("Value", SortOrder.ASCENDING);
+	}
+
+	@Test
+	public void nextSortReusesThem() {
+		long saved = AbstractSortableTreeTableNode.getSavedAllocationCount();
+		model.setSortOptions("Name", SortOrder.DESCENDING);
+		assertEquals("c4 c3 c2 c1 c0", TestNode.shown(root));
+		assertTrue(AbstractSortableTreeTableNode.getSavedAllocationCount() > saved);
+	}
+
+	@Test
+	public void fewerChildren() {
+		model.removeNodeFromParent((TestNode) root.getChildAtModel(4));
+		model.removeNodeFromParent((TestNode) root.getChildAtModel(0));
+		model.setSortOrder(SortOrder.DESCENDING);
+		assertEquals("c1 c2 c3", TestNode.shown(root));
+		assertEquals(0, root.convertRowIndexToModel(0));
+		assertEquals(2, root.convertRowIndexToView(2));
+	}
+
+	@Test
+	public void moreChildrenThanTheyHold() {
+		model.beginBatch();
+		for (int i = 0; i < 20; i++) {
+			model.insertNodeInto(new TestNode("x" + i, 10 + i), root, 0);
+		}
+		model.endBatch();
+		assertEquals(25, root.getChildCount());
+		assertEquals("c4", root.getChildAt(0).toString());
+		assertEquals("x0", root.getChildAt(5).toString());
+		assertEquals("x19", root.getChildAt(24).toString());
+		// x0 was inserted first, so is last in model order
+		assertEquals(5, root.convertRowIndexToView(19));
+	}
+}
@@ -0,0 +1,95 @@
+/** SortableTreeTableTest.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseEvent;
+
+import javax.swing.SwingUtilities;
+
+import org.jdesktop.swingx.JXTableHeader;
+import org.jdesktop.swingx.decorator.SortOrder;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Sorting by clicking the column headers: click to sort or reverse,
+ * shift-click to add a sort key, ctrl-click to remove the sort.
+ */
+public class SortableTreeTableTest {
+
+	private TestNode root;
+	private SortableTreeTableModel model;
+	private SortableTreeTable table;
+	private JXTableHeader header;
+
+	@Before
+	public void setUp() throws Exception {
+		root = TestNode.withChildren("c", 4);
+		model = new SortableTreeTableModel(root, TestNode.COLUMNS);
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				table = new SortableTreeTable(model);
+				// as the demo, so that sorting the root keeps the columns
+				table.setAutoCreateColumnsFromModel(false);
+				header = (JXTableHeader) table.getTableHeader();
+				table.setSize(200, 100);
+				header.setSize(200, 20);
+				table.doLayout();
+			}
+		});
+	}
+
+	@Test
+	public void clickSorts() throws Exception {
+		click(TestNode.VALUE, 0);
+		assertEquals(TestNode.VALUE, model.getSortColumnIndex());
+		assertEquals(SortOrder.ASCENDING, model.getSortOrder());
+		click(TestNode.VALUE, 0);
+		assertEquals(SortOrder.DESCENDING, model.getSortOrder());
+	}
+
+	@Test
+	public void shiftClickAddsSortKey() throws Exception {
+		click(TestNode.VALUE, 0);
+		click(TestNode.NAME, InputEvent.SHIFT_DOWN_MASK);
+		assertEquals(2, model.getSortKeys().size());
+		assertEquals(TestNode.VALUE, model.getSortColumnIndex());
+		assertEquals(SortOrder.ASCENDING,
+				model.getColumnSortOrder(TestNode.NAME));
+	}
+
+	@Test
+	public void ctrlClickRemovesSort() throws Exception {
+		click(TestNode.VALUE, 0);
+		click(TestNode.VALUE, InputEvent.CTRL_DOWN_MASK);
+		assertEquals(SortOrder.UNSORTED, model.getSortOrder());
+	}
+
+	/**
+	 * Click the header of column through the event queue, as the table
+	 * looks at the event being dispatched
+	 */
+	private void click(int column, int modifiers) throws Exception {
+		int x = header.getHeaderRect(column).x + 5;
+		final MouseEvent e = new MouseEvent(header, MouseEvent.MOUSE_CLICKED,
+				System.currentTimeMillis(), modifiers, x, 5, 1, false,
+				MouseEvent.BUTTON1);
+		EventQueue queue = Toolkit.getDefaultToolkit().getSystemEventQueue();
+		queue.postEvent(e);
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				// clicked
+			}
+		});
+	}
+}
@@ -0,0 +1,70 @@
+/** TestNode.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.jdesktop.swingx.treetable.TreeTableNode;
+
+/**
+ * A node with a name and a value column, for the tests
+ */
+class TestNode extends AbstractSortableTreeTableNode {
+
+	static final int NAME = 0;
+	static final int VALUE = 1;
+	static final List<String> COLUMNS = Arrays.asList("Name", "Value");
+
+	final Object[] values;
+
+	TestNode(String name, Object value) {
+		super(name);
+		values = new Object[] { name, value };
+	}
+
+	@Override
+	public Object getValueAt(int column) {
+		return values[column];
+	}
+
+	@Override
+	public int getColumnCount() {
+		return values.length;
+	}
+
+	@Override
+	public String toString() {
+		return (String) values[NAME];
+	}
+
+	/**
+	 * @return the names of the children of node as shown, separated by
+	 * spaces
+	 */
+	static String shown(TreeTableNode node) {
+		StringBuilder s = new StringBuilder();
+		for (int i = 0; i < node.getChildCount(); i++) {
+			if (i > 0) {
+				s.append(' ');
+			}
+			s.append(node.getChildAt(i));
+		}
+		return s.toString();
+	}
+
+	/**
+	 * @return a node with children named prefix0 to prefix(count - 1), of
+	 * values count - 1 down to 0
+	 */
+	static TestNode withChildren(String prefix, int count) {
+		TestNode parent = new TestNode("root", null);
+		for (int i = 0; i < count; i++) {
+			parent.add(new TestNode(prefix + i, count - 1 - i));
+		}
+		return parent;
+	}
+}
@@ -0,0 +1,93 @@
+/** ValueChangedTest.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+
+import org.jdesktop.swingx.decorator.SortOrder;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A changed value moves only its node, with a removed and an added event.
+ */
+public class ValueChangedTest {
+
+	private TestNode root;
+	private SortableTreeTableModel model;
+	private final List<String> events = new ArrayList<String>();
+
+	@Before
+	public void setUp() {
+		root = TestNode.withChildren("c", 5);
+		model = new SortableTreeTableModel(root, TestNode.COLUMNS);
+		model.setSortOptions("Value", SortOrder.ASCENDING);
+		model.addTreeModelListener(new TreeModelListener() {
+			@Override
+			public void treeNodesChanged(TreeModelEvent e) {
+				events.add("changed");
+			}
+
+			@Override
+			public void treeNodesInserted(TreeModelEvent e) {
+				events.add("inserted " + e.getChildIndices()[0]);
+			}
+
+			@Override
+			public void treeNodesRemoved(TreeModelEvent e) {
+				events.add("removed " + e.getChildIndices()[0]);
+			}
+
+			@Override
+			public void treeStructureChanged(TreeModelEvent e) {
+				events.add("structure");
+			}
+		});
+	}
+
+	@Test
+	public void movesTheNode() {
+		assertEquals("c4 c3 c2 c1 c0", TestNode.shown(root));
+		TestNode c3 = (TestNode) root.getChildAtModel(3);
+		c3.values[TestNode.VALUE] = 9;
+		model.valueChanged(c3, TestNode.VALUE);
+		assertEquals("c4 c2 c1 c0 c3", TestNode.shown(root));
+		assertEquals("[removed 1, inserted 4]", events.toString());
+		assertEquals(4, root.getIndex(c3));
+		assertEquals(3, root.convertRowIndexToModel(4));
+	}
+
+	@Test
+	public void keepsItsPlace() {
+		TestNode c2 = (TestNode) root.getChildAtModel(2);
+		c2.values[TestNode.VALUE] = 2;
+		model.valueChanged(c2, TestNode.VALUE);
+		assertEquals("c4 c3 c2 c1 c0", TestNode.shown(root));
+		assertEquals("[changed]", events.toString());
+	}
+
+	@Test
+	public void otherColumnOnlyChanges() {
+		TestNode c0 = (TestNode) root.getChildAtModel(0);
+		c0.values[TestNode.NAME] = "a";
+		model.valueChanged(c0, TestNode.NAME);
+		assertEquals("[changed]", events.toString());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void viewIndexPastTheChildren() {
+		TestNode c0 = (TestNode) root.getChildAtModel(0);
+		model.removeNodeFromParent(c0);
+		// the sort buffers still have room for c0
+		root.convertRowIndexToModel(4);
+	}
+}
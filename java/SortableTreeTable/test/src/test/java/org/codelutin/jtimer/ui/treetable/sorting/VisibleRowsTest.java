@@ -0,0 +1,178 @@
+/** VisibleRowsTest.java                          PortfolioApp
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.codelutin.jtimer.ui.treetable.sorting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JTree;
+import javax.swing.SwingUtilities;
+import javax.swing.tree.TreePath;
+
+import org.jdesktop.swingx.decorator.SortOrder;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * The row index follows the rows shown by the TreeTable as nodes are
+ * inserted, removed, sorted, several at a time, and expanded, and serves
+ * the tree rendering the hierarchical column too.
+ */
+public class VisibleRowsTest {
+
+	private TestNode root;
+	private SortableTreeTableModel model;
+	private SortableTreeTable table;
+
+	@Before
+	public void setUp() throws Exception {
+		root = TestNode.withChildren("a", 6);
+		for (int i = 0; i < 6; i++) {
+			TestNode a = (TestNode) root.getChildAt(i);
+			for (int j = 0; j < 3; j++) {
+				a.add(new TestNode(a + "b" + j, j));
+			}
+		}
+		model = new SortableTreeTableModel(root, TestNode.COLUMNS);
+		// notify the moves of a sort, rather than a structure change
+		model.setMoveThreshold(1.0);
+		onEDT(new Runnable() {
+			@Override
+			public void run() {
+				table = new SortableTreeTable(model);
+				table.setAutoCreateColumnsFromModel(false);
+				table.setLargeModel(true);
+				table.setRowHeight(16);
+				model.setRowIndexed(true);
+				for (int i : new int[] { 1, 3, 4 }) {
+					table.expandPath(new TreePath(new Object[] { root,
+							root.getChildAt(i) }));
+				}
+			}
+		});
+		assertRows();
+	}
+
+	@Test
+	public void indexedByTheTree() throws Exception {
+		onEDT(new Runnable() {
+			@Override
+			public void run() {
+				assertTrue(tree().getUI() instanceof IndexedTreeUI);
+				assertTrue(((IndexedTreeUI) tree().getUI()).isIndexed());
+				// the look and feel's UI is replaced again
+				table.updateUI();
+				assertTrue(((IndexedTreeUI) tree().getUI()).isIndexed());
+				model.setRowIndexed(false);
+				assertFalse(tree().getUI() instanceof IndexedTreeUI);
+			}
+		});
+		assertRows();
+	}
+
+	@Test
+	public void expandedDescendantsShownAgain() throws Exception {
+		final TreePath a3 = new TreePath(new Object[] { root,
+				root.getChildAt(3) });
+		onEDT(new Runnable() {
+			@Override
+			public void run() {
+				TestNode b0 = (TestNode) root.getChildAt(3).getChildAt(0);
+				b0.add(new TestNode("c", 0));
+				table.expandPath(a3.pathByAddingChild(b0));
+				table.collapsePath(a3);
+			}
+		});
+		assertRows();
+		onEDT(new Runnable() {
+			@Override
+			public void run() {
+				table.expandPath(a3);
+			}
+		});
+		assertRows();
+	}
+
+	@Test
+	public void sortMovesSeveral() throws Exception {
+		onEDT(new Runnable() {
+			@Override
+			public void run() {
+				model.setSortOptions("Value", SortOrder.ASCENDING);
+			}
+		});
+		assertEquals("a5 a4 a3 a2 a1 a0", TestNode.shown(root));
+		assertRows();
+		onEDT(new Runnable() {
+			@Override
+			public void run() {
+				model.setSortOrder(SortOrder.DESCENDING);
+			}
+		});
+		assertRows();
+	}
+
+	@Test
+	public void insertAndRemove() throws Exception {
+		onEDT(new Runnable() {
+			@Override
+			public void run() {
+				TestNode a3 = (TestNode) root.getChildAt(3);
+				model.insertNodeInto(new TestNode("X", 9), root, 0);
+				model.insertNodeInto(new TestNode("Y", 9), a3, 2);
+				model.insertNodeInto(new TestNode("Z", 9), root,
+						root.getChildCount());
+				model.removeNodeFromParent(a3);
+				model.removeNodeFromParent((TestNode) root.getChildAt(1));
+			}
+		});
+		assertRows();
+	}
+
+	/**
+	 * Compare the rows of the index with those of a walk of the tree
+	 */
+	private void assertRows() throws Exception {
+		onEDT(new Runnable() {
+			@Override
+			public void run() {
+				List<TreePath> expected = new ArrayList<TreePath>();
+				addRows(new TreePath(root), expected);
+				assertEquals(expected.size(), table.getRowCount());
+				// from the last row, so that the earlier rows are found in the map
+				for (int row = expected.size() - 1; row >= 0; row--) {
+					assertEquals(expected.get(row), table.getPathForRow(row));
+					assertEquals(row, table.getRowForPath(expected.get(row)));
+					assertEquals(expected.get(row), tree().getPathForRow(row));
+				}
+			}
+		});
+	}
+
+	private JTree tree() {
+		return (JTree) table.getCellRenderer(0, table.getHierarchicalColumn());
+	}
+
+	private void addRows(TreePath path, List<TreePath> rows) {
+		if (path.getPathCount() > 1 || table.isRootVisible()) {
+			rows.add(path);
+		}
+		if (path.getPathCount() == 1 || table.isExpanded(path)) {
+			Object node = path.getLastPathComponent();
+			for (int i = 0; i < model.getChildCount(node); i++) {
+				addRows(path.pathByAddingChild(model.getChild(node, i)), rows);
+			}
+		}
+	}
+
+	private static void onEDT(Runnable task) throws Exception {
+		SwingUtilities.invokeAndWait(task);
+	}
+}
@@ -0,0 +1,124 @@
+/** CsvReaderTest.java                          JStock
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.yccheok.jstock.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Rows of quoted UTF-8, read whole or a byte at a time.
+ */
+public class CsvReaderTest {
+
+	private final StringPool pool = new StringPool();
+
+	@Test
+	public void quotedFields() throws IOException {
+		List<List<String>> rows = read("\"Code\",\"Symbol\"\n"
+				+ "\"1\",\"Say \"\"Hi\"\", Inc\"\n"
+				+ "2,plain,\"\"\n");
+		assertEquals(Arrays.asList("Code", "Symbol"), rows.get(0));
+		assertEquals(Arrays.asList("1", "Say \"Hi\", Inc"), rows.get(1));
+		assertEquals(Arrays.asList("2", "plain", ""), rows.get(2));
+		assertEquals(3, rows.size());
+	}
+
+	@Test
+	public void lineEnds() throws IOException {
+		List<List<String>> rows = read("a,b\r\n\r\n\nc\r\"d\ne\"\n");
+		assertEquals(Arrays.asList("a", "b"), rows.get(0));
+		assertEquals(Arrays.asList("c"), rows.get(1));
+		// within quotes a line end is part of the field
+		assertEquals(Arrays.asList("d\ne"), rows.get(2));
+		assertEquals(3, rows.size());
+	}
+
+	@Test
+	public void utf8() throws IOException {
+		// 2, 3 and 4 byte sequences
+		String csv = "\"\u00e9t\u00e9\",\"\u5e73\u5b89\u94f6\u884c\",\"\ud83d\ude00\"\n";
+		assertEquals(Arrays.asList("\u00e9t\u00e9", "\u5e73\u5b89\u94f6\u884c",
+				"\ud83d\ude00"), read(csv).get(0));
+		assertEquals(read(csv), readByByte(csv.getBytes("UTF-8")));
+	}
+
+	@Test
+	public void malformed() throws IOException {
+		// a lone continuation byte, and a lead byte cut short by the comma
+		byte[] csv = { 'a', (byte) 0x80, 'b', ',', (byte) 0xE5, ',', 'c', '\n' };
+		assertEquals(Arrays.asList("a\uFFFDb", "\uFFFD", "c"), readByByte(csv)
+				.get(0));
+	}
+
+	@Test
+	public void longRows() throws IOException {
+		StringBuilder csv = new StringBuilder();
+		char[] field = new char[1000];
+		Arrays.fill(field, 'x');
+		for (int i = 0; i < 20; i++) {
+			csv.append(field).append(i).append(',');
+		}
+		csv.append("last\n");
+		List<String> row = read(csv.toString()).get(0);
+		assertEquals(21, row.size());
+		assertEquals(new String(field) + 19, row.get(19));
+		assertEquals("last", row.get(20));
+	}
+
+	@Test
+	public void fieldsPooled() throws IOException {
+		CsvReader reader = new CsvReader(new ByteArrayInputStream(
+				"\"Main\",\"Main\"\n".getBytes("UTF-8")));
+		assertTrue(reader.next());
+		assertSame(reader.getField(0, pool), reader.getField(1, pool));
+		assertTrue(reader.isField(0, "Main"));
+		assertFalse(reader.isField(0, "Mai"));
+		assertFalse(reader.next());
+	}
+
+	// ======================================================= private methods
+
+	private List<List<String>> read(String csv) throws IOException {
+		return read(new ByteArrayInputStream(csv.getBytes("UTF-8")));
+	}
+
+	/*
+	 * so that every character is split between reads
+	 */
+	private List<List<String>> readByByte(byte[] csv) throws IOException {
+		return read(new FilterInputStream(new ByteArrayInputStream(csv)) {
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return super.read(b, off, Math.min(len, 1));
+			}
+		});
+	}
+
+	private List<List<String>> read(InputStream in) throws IOException {
+		CsvReader reader = new CsvReader(in);
+		List<List<String>> rows = new ArrayList<List<String>>();
+		while (reader.next()) {
+			List<String> row = new ArrayList<String>();
+			for (int i = 0; i < reader.getFieldCount(); i++) {
+				row.add(reader.getField(i, pool));
+			}
+			rows.add(row);
+		}
+		return rows;
+	}
+}
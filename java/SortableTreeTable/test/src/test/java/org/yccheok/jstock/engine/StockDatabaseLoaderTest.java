@@ -0,0 +1,190 @@
+/** StockDatabaseLoaderTest.java                          JStock
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.yccheok.jstock.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Loading the countries of a database.zip in parallel, with the tasks run in
+ * the order the test chooses.
+ */
+public class StockDatabaseLoaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private StockDatabaseLoader loader;
+	private final List<Runnable> tasks = new ArrayList<Runnable>();
+	private final List<String> events = Collections
+			.synchronizedList(new ArrayList<String>());
+
+	@Before
+	public void setUp() throws IOException {
+		File zip = folder.newFile("database.zip");
+		ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip));
+		try {
+			entry(out, "Malaysia", "\"Code\",\"Symbol\",\"Industry\",\"Board\"\n"
+					+ "\"1\",\"One\",\"Unknown\",\"Main\"\n"
+					+ "\"X\",\"Ex MY\",\"Unknown\",\"Main\"\n");
+			entry(out, "Singapore", "\"2\",\"Two\",\"Finance\",\"Main\"\n"
+					+ "\"X\",\"Ex SG\",\"Finance\",\"Main\"\n");
+			entry(out, "Japan", "\"3\",\"Three\",\"Unknown\",\"Second\"\n");
+		} finally {
+			out.close();
+		}
+		loader = new StockDatabaseLoader(zip);
+	}
+
+	@Test
+	public void duplicateCodeInZipOrder() throws Exception {
+		SymbolIndex index = loader.loadAll(queue(3), null, null);
+		// the last submitted first, so Singapore loads before Malaysia
+		Collections.reverse(tasks);
+		run(tasks);
+		assertTrue(index.isComplete());
+		index.await();
+		assertEquals(4, index.size());
+		assertEquals("Malaysia", index.findTable("X").getCountry());
+		assertEquals("Singapore", index.findTable("2").getCountry());
+	}
+
+	@Test
+	public void codesRenumberedOnceComplete() throws Exception {
+		SymbolIndex index = loader.loadAll(queue(3), null, null);
+		run(tasks.subList(0, 2));
+		SymbolTable malaysia = index.getTable("Malaysia");
+		SymbolTable singapore = index.getTable("Singapore");
+		// Unknown before Finance, as first read
+		assertEquals(0, malaysia.getIndustryCode(0));
+		assertEquals(1, singapore.getIndustryCode(0));
+		run(tasks.subList(2, 3));
+		assertTrue(index.isComplete());
+		assertEquals(1, malaysia.getIndustryCode(0));
+		assertEquals(0, singapore.getIndustryCode(0));
+		assertEquals(index.getTable("Japan").getIndustryCode(0),
+				malaysia.getIndustryCode(1));
+		assertEquals("Unknown", malaysia.getIndustry(0));
+	}
+
+	@Test
+	public void homeCountryFirst() throws Exception {
+		SymbolIndex index = loader.loadAll(queue(3), "Japan", listener());
+		run(tasks);
+		assertEquals("Japan", index.getCountries().get(0));
+		assertEquals("Malaysia", index.findTable("X").getCountry());
+		assertEquals("allLoaded", events.get(events.size() - 1));
+	}
+
+	@Test
+	public void rejectedCountriesFail() throws Exception {
+		try {
+			loader.loadAll(queue(1), "Japan", listener());
+			fail();
+		} catch (RejectedExecutionException e) {
+			// the index is being filled by the task accepted
+		}
+		assertEquals(2, events.size());
+		assertTrue(events.get(0).startsWith("failed"));
+		assertEquals(1, tasks.size());
+		run(tasks);
+		assertEquals("loaded Japan", events.get(2));
+		assertEquals("allLoaded", events.get(3));
+		assertEquals(4, events.size());
+	}
+
+	@Test
+	public void allRejected() throws Exception {
+		try {
+			loader.loadAll(queue(0), null, listener());
+			fail();
+		} catch (RejectedExecutionException e) {
+			// nothing is loading
+		}
+		assertEquals(4, events.size());
+		assertEquals("allLoaded", events.get(3));
+	}
+
+	@Test
+	public void indexIncompleteUntilLoaded() throws Exception {
+		SymbolIndex index = loader.loadAll(queue(3), null, null);
+		assertFalse(index.isComplete());
+		assertEquals(null, index.findTable("1"));
+		run(tasks.subList(0, 1));
+		assertEquals("Malaysia", index.findTable("1").getCountry());
+		assertFalse(index.isComplete());
+	}
+
+	// ======================================================= private methods
+
+	private static void entry(ZipOutputStream out, String country, String csv)
+			throws IOException {
+		out.putNextEntry(new ZipEntry(country + "/database/"
+				+ StockDatabaseLoader.INFO_DATABASE));
+		out.write(csv.getBytes("UTF-8"));
+		out.closeEntry();
+	}
+
+	/*
+	 * An executor which holds the first accepted tasks, to be run by the
+	 * test, and rejects the rest
+	 */
+	private Executor queue(final int accepted) {
+		return new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				if (tasks.size() == accepted) {
+					throw new RejectedExecutionException();
+				}
+				tasks.add(command);
+			}
+		};
+	}
+
+	private static void run(List<Runnable> tasks) {
+		for (Runnable task : new ArrayList<Runnable>(tasks)) {
+			task.run();
+		}
+	}
+
+	private SymbolLoadListener listener() {
+		return new SymbolLoadListener() {
+			@Override
+			public void countryLoaded(SymbolIndex index, SymbolTable table) {
+				events.add("loaded " + table.getCountry());
+			}
+
+			@Override
+			public void countryFailed(SymbolIndex index, String country,
+					IOException e) {
+				events.add("failed " + country);
+			}
+
+			@Override
+			public void allLoaded(SymbolIndex index) {
+				events.add("allLoaded");
+			}
+		};
+	}
+}
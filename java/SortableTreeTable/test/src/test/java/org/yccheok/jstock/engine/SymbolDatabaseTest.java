@@ -0,0 +1,151 @@
+/** SymbolDatabaseTest.java                          JStock
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.yccheok.jstock.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * A database compiled from a zip of two countries, and compiled again only
+ * when the zip changes or the file is damaged.
+ */
+public class SymbolDatabaseTest {
+
+	private static final String MALAYSIA = "\"Code\",\"Symbol\",\"Industry\",\"Board\"\n"
+			+ "\"2\",\"Two\",\"Technology\",\"Main\"\n"
+			+ "\"1\",\"One\",\"Finance\",\"Second\"\n";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File zip;
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		zip = new File(folder.getRoot(), "database.zip");
+		file = new File(folder.getRoot(), "symbols.db");
+		zip(MALAYSIA);
+	}
+
+	@Test
+	public void roundTrip() throws IOException {
+		SymbolDatabase database = SymbolDatabase.open(zip, file);
+		assertEquals(2, database.getCountryCount());
+		assertEquals(3, database.size());
+		assertEquals(1, database.indexOfCountry("Singapore"));
+		assertEquals(-1, database.indexOfCountry("Japan"));
+		assertEquals(2, database.getFirstRow(1));
+		assertEquals(1, database.getRowCount(1));
+		assertEquals(1, database.getCountryOf(2));
+
+		// rows in the order of the csv, found by code
+		assertEquals("2", database.getCode(0));
+		assertEquals(1, database.indexOf("1"));
+		assertEquals(2, database.indexOf("3"));
+		assertEquals(-1, database.indexOf("4"));
+		assertEquals("One", database.getSymbol(1));
+		assertEquals("\u5e73\u5b89", database.getName(1));
+		assertNull(database.getName(0));
+		assertNull(database.getName(2));
+
+		// sorted dictionaries shared by the countries
+		assertEquals("Auto", database.getIndustryValue(0));
+		assertEquals(3, database.getIndustryCount());
+		assertEquals(1, database.getIndustryCode(1));
+		assertEquals("Technology", database.getIndustry(0));
+		assertEquals(database.getBoardCode(0), database.getBoardCode(2));
+		assertEquals("Second", database.getBoard(1));
+	}
+
+	@Test
+	public void currentFileKept() throws IOException {
+		SymbolDatabase.open(zip, file);
+		file.setLastModified(0);
+		SymbolDatabase.open(zip, file);
+		assertEquals(0, file.lastModified());
+	}
+
+	@Test
+	public void compiledAgainWhenTheZipChanges() throws IOException {
+		long fingerprint = SymbolDatabase.open(zip, file).getFingerprint();
+		zip(MALAYSIA + "\"5\",\"Five\",\"Finance\",\"Main\"\n");
+		SymbolDatabase database = SymbolDatabase.open(zip, file);
+		assertFalse(fingerprint == database.getFingerprint());
+		assertEquals(4, database.size());
+		assertEquals(2, database.indexOf("5"));
+	}
+
+	@Test
+	public void compiledAgainWhenTruncated() throws IOException {
+		SymbolDatabase.open(zip, file);
+		truncate();
+		SymbolDatabase database = SymbolDatabase.open(zip, file);
+		assertEquals(3, database.size());
+		assertEquals("Three", database.getSymbol(2));
+	}
+
+	@Test
+	public void truncatedNotMapped() throws IOException {
+		SymbolDatabase.open(zip, file);
+		truncate();
+		try {
+			SymbolDatabase.map(file);
+			fail();
+		} catch (IOException e) {
+			// Truncated symbol database
+		}
+	}
+
+	// ======================================================= private methods
+
+	/*
+	 * Write Malaysia's info and name databases, then Singapore's info
+	 */
+	private void zip(String malaysia) throws IOException {
+		ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip));
+		try {
+			entry(out, "Malaysia/database/" + StockDatabaseLoader.INFO_DATABASE,
+					malaysia);
+			entry(out, "Malaysia/database/" + SymbolDatabaseWriter.NAME_DATABASE,
+					"\"Code\",\"Name\"\n\"1\",\"\u5e73\u5b89\"\n");
+			entry(out, "Singapore/database/" + StockDatabaseLoader.INFO_DATABASE,
+					"\"3\",\"Three\",\"Auto\",\"Main\"\n");
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void entry(ZipOutputStream out, String name, String csv)
+			throws IOException {
+		out.putNextEntry(new ZipEntry(name));
+		out.write(csv.getBytes("UTF-8"));
+		out.closeEntry();
+	}
+
+	private void truncate() throws IOException {
+		RandomAccessFile f = new RandomAccessFile(file, "rw");
+		try {
+			f.setLength(f.length() / 2);
+		} finally {
+			f.close();
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/** SymbolSearchIndexTest.java                          JStock
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.yccheok.jstock.engine;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Prefix searches of the codes, symbols and Chinese names of three
+ * countries, over all of them or one.
+ */
+public class SymbolSearchIndexTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SymbolSearchIndex index;
+
+	@Before
+	public void setUp() throws IOException {
+		File zip = folder.newFile("database.zip");
+		ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip));
+		try {
+			// rows 0 to 2
+			entry(out, "Malaysia/database/" + StockDatabaseLoader.INFO_DATABASE,
+					"\"1155\",\"MAYBANK\",\"Finance\",\"Main\"\n"
+					+ "\"1023\",\"CIMB\",\"Finance\",\"Main\"\n"
+					+ "\"5099\",\"AIRASIA\",\"Trading\",\"Main\"\n");
+			// rows 3 to 5
+			entry(out, "China/database/" + StockDatabaseLoader.INFO_DATABASE,
+					"\"600116\",\"SANXIA WATER\",\"Utilities\",\"Main\"\n"
+					+ "\"600000\",\"PUDONG BANK\",\"Finance\",\"Main\"\n"
+					+ "\"600015\",\"HUAXIA BANK\",\"Finance\",\"Main\"\n");
+			// San Xia Shui Li, Pu Fa Yin Hang and Hua Xia Yin Hang
+			entry(out, "China/database/" + SymbolDatabaseWriter.NAME_DATABASE,
+					"\"600116\",\"\u4e09\u5ce1\u6c34\u5229\"\n"
+					+ "\"600000\",\"\u6d66\u53d1\u94f6\u884c\"\n"
+					+ "\"600015\",\"\u534e\u590f\u94f6\u884c\"\n");
+			// rows 6 to 8
+			entry(out, "Singapore/database/" + StockDatabaseLoader.INFO_DATABASE,
+					"\"D05\",\"DBS\",\"Finance\",\"Main\"\n"
+					+ "\"C6L\",\"SIA\",\"Transport\",\"Main\"\n"
+					+ "\"Z74\",\"SINGTEL DIGITAL\",\"Telecom\",\"Main\"\n");
+		} finally {
+			out.close();
+		}
+		index = SymbolSearchIndex.build(SymbolDatabase.open(zip, new File(
+				folder.getRoot(), "symbols.db")));
+	}
+
+	@Test
+	public void byCode() {
+		assertArrayEquals(new int[] { 4, 5, 3 }, index.search("600", 10));
+		assertArrayEquals(new int[] { 1, 0 }, index.search("1", 10));
+		assertArrayEquals(new int[] { 5 }, index.search("600015", 10));
+	}
+
+	@Test
+	public void byAnyWordIgnoringCase() {
+		assertArrayEquals(new int[] { 4, 5 }, index.search("bank", 10));
+		assertArrayEquals(new int[] { 0 }, index.search("MayB", 10));
+		assertArrayEquals(new int[] { 8 }, index.search("digi", 10));
+	}
+
+	@Test
+	public void codesFirstEachRowOnce() {
+		// D05, then DBS of the same row and DIGITAL
+		assertArrayEquals(new int[] { 6, 8 }, index.search("d", 10));
+	}
+
+	@Test
+	public void chineseNames() {
+		// Hua Xia, at the start of a name
+		assertArrayEquals(new int[] { 5 }, index.search("\u534e\u590f", 10));
+		// Yin Hang, bank, within the names
+		assertArrayEquals(new int[] { 4, 5 }, index.search("\u94f6\u884c", 10));
+		assertArrayEquals(new int[] { 3 }, index.search("\u6c34", 10));
+		assertArrayEquals(new int[0], index.search("\u94f6\u6c34", 10));
+	}
+
+	@Test
+	public void withinCountry() {
+		assertArrayEquals(new int[0], index.search("bank", 0, 10));
+		assertArrayEquals(new int[] { 4, 5, 3 }, index.search("600", 1, 10));
+		assertArrayEquals(new int[] { 7, 8 }, index.search("si", 2, 10));
+	}
+
+	@Test
+	public void limited() {
+		assertArrayEquals(new int[] { 4, 5 }, index.search("600", 2));
+		assertArrayEquals(new int[] { 4 }, index.search(" 600 ", 1));
+		assertArrayEquals(new int[0], index.search("  ", 10));
+		assertArrayEquals(new int[0], index.search("600", 0));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void unknownCountry() {
+		index.search("600", 3, 10);
+	}
+
+	// ======================================================= private methods
+
+	private static void entry(ZipOutputStream out, String name, String csv)
+			throws IOException {
+		out.putNextEntry(new ZipEntry(name));
+		out.write(csv.getBytes("UTF-8"));
+		out.closeEntry();
+	}
+}
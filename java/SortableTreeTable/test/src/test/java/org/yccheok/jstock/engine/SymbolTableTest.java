@@ -0,0 +1,103 @@
+/** SymbolTableTest.java                          JStock
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.yccheok.jstock.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tables of two countries read with shared dictionaries, before and after
+ * their codes are renumbered.
+ */
+public class SymbolTableTest {
+
+	private ValueDictionary industries;
+	private ValueDictionary boards;
+	private SymbolTable malaysia;
+	private SymbolTable singapore;
+
+	@Before
+	public void setUp() throws IOException {
+		industries = new ValueDictionary();
+		boards = new ValueDictionary();
+		StringPool pool = new StringPool();
+		malaysia = read("Malaysia", "\"Code\",\"Symbol\",\"Industry\",\"Board\"\n"
+				+ "\"1\",\"One\",\"Technology\",\"Main\"\n"
+				+ "\"2\",\"Two\",\"Finance\",\"Main\"\n"
+				+ "\"1\",\"Again\",\"Finance\",\"Second\"\n", pool);
+		singapore = read("Singapore", "\"3\",\"Three\",\"Auto\",\"Main\"\n"
+				+ "\"4\",\"Four\",\"Technology\",\"Main\"\n"
+				+ "\"5\"\n", pool);
+	}
+
+	@Test
+	public void readsRows() {
+		assertEquals(3, malaysia.size());
+		assertEquals(2, singapore.size());
+		assertEquals("Two", malaysia.getSymbol(1));
+		assertEquals("Finance", malaysia.getIndustry(2));
+		assertEquals("Second", malaysia.getBoard(2));
+		assertEquals(1, singapore.indexOf("4"));
+		assertEquals(-1, singapore.indexOf("1"));
+		// a repeated code keeps its first row
+		assertEquals(0, malaysia.indexOf("1"));
+	}
+
+	@Test
+	public void codesSharedBeforeRenumbering() {
+		// in the order first read
+		assertEquals(0, malaysia.getIndustryCode(0));
+		assertEquals(1, malaysia.getIndustryCode(1));
+		assertEquals(2, singapore.getIndustryCode(0));
+		assertEquals(malaysia.getIndustryCode(0), singapore.getIndustryCode(1));
+		assertEquals(malaysia.getBoardCode(0), singapore.getBoardCode(0));
+		assertEquals(2, malaysia.getIndustryCount());
+		assertEquals(3, singapore.getIndustryCount());
+	}
+
+	@Test
+	public void renumberedInValueOrder() {
+		SymbolTable.renumber(Arrays.asList(malaysia, singapore), industries,
+				boards);
+		// Auto, Finance, Technology
+		assertEquals(2, malaysia.getIndustryCode(0));
+		assertEquals(1, malaysia.getIndustryCode(1));
+		assertEquals(0, singapore.getIndustryCode(0));
+		assertEquals(2, singapore.getIndustryCode(1));
+		assertEquals("Technology", singapore.getIndustry(1));
+		assertEquals("Auto", malaysia.getIndustryValue(0));
+		assertEquals(3, malaysia.getIndustryCount());
+		assertTrue(malaysia.getBoardCode(2) > singapore.getBoardCode(0));
+		assertSame(malaysia.getBoardValue(0), singapore.getBoardValue(0));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void frozenDictionary() {
+		SymbolTable.renumber(Arrays.asList(malaysia, singapore), industries,
+				boards);
+		industries.add("Mining");
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void rowPastTheEnd() {
+		singapore.getIndustryCode(2);
+	}
+
+	private SymbolTable read(String country, String csv, StringPool pool)
+			throws IOException {
+		return StockDatabaseLoader.read(new ByteArrayInputStream(csv
+				.getBytes("UTF-8")), new SymbolTable(country, 0, industries,
+				boards), pool);
+	}
+}
@@ -0,0 +1,212 @@
+/** CsvReader.java                          JStock
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.yccheok.jstock.engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads quoted, comma separated rows of UTF-8 straight from a stream, e.g.
+ * the inflater stream of a zip entry, without a Reader or any String per
+ * field.<br>
+ * Each row is decoded into one reused char buffer, and its fields are read
+ * from there through a StringPool, so the only Strings allocated are the
+ * distinct values.
+ * <p>
+ * Fields may be quoted, with "" for a quote within them. Rows end with LF or
+ * CRLF, outside quotes.
+ */
+final class CsvReader {
+
+	private final InputStream in;
+	private final byte[] buffer = new byte[1 << 16];
+	private int position = 0;
+	private int limit = 0;
+	// the decoded fields of the current row, one after the other
+	private char[] chars = new char[512];
+	private int length = 0;
+	private int[] starts = new int[8];
+	private int[] ends = new int[8];
+	private int fields = 0;
+
+	CsvReader(InputStream in) {
+		this.in = in;
+	}
+
+	/**
+	 * Read the next row, skipping blank lines
+	 *
+	 * @return false at the end of the stream
+	 */
+	boolean next() throws IOException {
+		length = 0;
+		fields = 0;
+		int b = read();
+		while (b == '\n' || b == '\r') {
+			b = read();
+		}
+		if (b == -1) {
+			return false;
+		}
+		while (true) {
+			int start = length;
+			if (b == '"') {
+				b = read();
+				while (b != -1) {
+					if (b == '"') {
+						b = read();
+						if (b != '"') {
+							break;
+						}
+					}
+					b = decode(b);
+				}
+				// anything between the closing quote and the comma is dropped
+				while (b != ',' && b != '\n' && b != '\r' && b != -1) {
+					b = read();
+				}
+			} else {
+				while (b != ',' && b != '\n' && b != '\r' && b != -1) {
+					b = decode(b);
+				}
+			}
+			addField(start);
+			if (b != ',') {
+				break;
+			}
+			b = read();
+		}
+		if (b == '\r' && peek() == '\n') {
+			read();
+		}
+		return true;
+	}
+
+	/**
+	 * @return number of fields in the current row
+	 */
+	int getFieldCount() {
+		return fields;
+	}
+
+	/**
+	 * @return field of the current row, as pooled by pool
+	 */
+	String getField(int field, StringPool pool) {
+		return pool.intern(chars, starts[field], ends[field] - starts[field]);
+	}
+
+	/**
+	 * @return true if field of the current row equals s
+	 */
+	boolean isField(int field, String s) {
+		int start = starts[field];
+		if (ends[field] - start != s.length()) {
+			return false;
+		}
+		for (int i = 0; i < s.length(); i++) {
+			if (chars[start + i] != s.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// ======================================================= private methods
+
+	private int read() throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		return buffer[position++] & 0xFF;
+	}
+
+	private int peek() throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		return buffer[position] & 0xFF;
+	}
+
+	private boolean fill() throws IOException {
+		int n = in.read(buffer, 0, buffer.length);
+		while (n == 0) {
+			n = in.read(buffer, 0, buffer.length);
+		}
+		if (n < 0) {
+			return false;
+		}
+		position = 0;
+		limit = n;
+		return true;
+	}
+
+	/*
+	 * Append the character starting with byte b, and return the byte after
+	 * it. A malformed sequence is appended as U+FFFD, and the byte which
+	 * broke it is returned to be read again.
+	 */
+	private int decode(int b) throws IOException {
+		if (b < 0x80) {
+			append((char) b);
+			return read();
+		}
+		int more;
+		int c;
+		if ((b & 0xE0) == 0xC0) {
+			more = 1;
+			c = b & 0x1F;
+		} else if ((b & 0xF0) == 0xE0) {
+			more = 2;
+			c = b & 0x0F;
+		} else if ((b & 0xF8) == 0xF0) {
+			more = 3;
+			c = b & 0x07;
+		} else {
+			append('\uFFFD');
+			return read();
+		}
+		for (int i = 0; i < more; i++) {
+			int next = read();
+			if ((next & 0xC0) != 0x80) {
+				append('\uFFFD');
+				return next;
+			}
+			c = (c << 6) | (next & 0x3F);
+		}
+		if (c > Character.MAX_CODE_POINT) {
+			append('\uFFFD');
+		} else if (c >= 0x10000) {
+			append(Character.highSurrogate(c));
+			append(Character.lowSurrogate(c));
+		} else {
+			append((char) c);
+		}
+		return read();
+	}
+
+	private void append(char c) {
+		if (length == chars.length) {
+			char[] grown = new char[chars.length << 1];
+			System.arraycopy(chars, 0, grown, 0, length);
+			chars = grown;
+		}
+		chars[length++] = c;
+	}
+
+	private void addField(int start) {
+		if (fields == starts.length) {
+			int[] s = new int[fields << 1];
+			int[] e = new int[fields << 1];
+			System.arraycopy(starts, 0, s, 0, fields);
+			System.arraycopy(ends, 0, e, 0, fields);
+			starts = s;
+			ends = e;
+		}
+		starts[fields] = start;
+		ends[fields++] = length;
+	}
+}
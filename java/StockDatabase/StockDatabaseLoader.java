@@ -0,0 +1,316 @@
+/** StockDatabaseLoader.java                          JStock
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.yccheok.jstock.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Loads the stock-info-database.csv of each country from database.zip, where
+ * each is held as &lt;Country&gt;/database/stock-info-database.csv with the
+ * columns "Code","Symbol","Industry","Board".<br>
+ * Each entry is parsed as it is inflated, straight into a SymbolTable, by a
+ * {@link CsvReader}. Values are pooled across all countries, so e.g. an
+ * Industry of "Unknown" is a single String, and the countries share the
+ * dictionaries of Industry and Board codes, renumbered once all are read.
+ * <p>
+ * The countries may instead be loaded in parallel, in the background, into a
+ * {@link SymbolIndex}: each entry is inflated and parsed by its own task, with
+ * its own pool but the index's dictionaries, and published as soon as it is
+ * ready, the home country first.
+ */
+public class StockDatabaseLoader {
+
+	static final String INFO_DATABASE = "stock-info-database.csv";
+	// for sizing a table from its entry, roughly the length of a row
+	private static final int BYTES_PER_ROW = 48;
+
+	private final File zip;
+
+	/**
+	 * @param zip - database.zip
+	 */
+	public StockDatabaseLoader(File zip) {
+		this.zip = zip;
+	}
+
+	/**
+	 * Load every country
+	 *
+	 * @return the table of each country, by country, in the order of the zip
+	 * @throws IOException if the zip cannot be read
+	 */
+	public Map<String, SymbolTable> loadAll() throws IOException {
+		Map<String, SymbolTable> tables = new LinkedHashMap<String, SymbolTable>();
+		StringPool pool = new StringPool();
+		ValueDictionary industries = new ValueDictionary();
+		ValueDictionary boards = new ValueDictionary();
+		ZipFile file = new ZipFile(zip);
+		try {
+			Enumeration<? extends ZipEntry> entries = file.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				String country = getCountry(entry, INFO_DATABASE);
+				if (country != null) {
+					tables.put(country, read(file, entry, new SymbolTable(
+							country, capacity(entry), industries, boards), pool));
+				}
+			}
+		} finally {
+			file.close();
+		}
+		SymbolTable.renumber(tables.values(), industries, boards);
+		return tables;
+	}
+
+	/**
+	 * Load every country in parallel, on a pool of up to one thread per
+	 * processor which is shut down once they are loaded
+	 *
+	 * @see #loadAll(Executor, String, SymbolLoadListener)
+	 */
+	public SymbolIndex loadAllInBackground(String homeCountry,
+			SymbolLoadListener listener) throws IOException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService executor = Executors.newFixedThreadPool(threads,
+				new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "StockDatabaseLoader-"
+								+ count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		try {
+			return loadAll(executor, homeCountry, listener);
+		} finally {
+			// the submitted tasks still run
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Load every country in parallel, one task per country on executor, and
+	 * return at once. Each country is added to the index and told to
+	 * listener as soon as it is loaded.<br>
+	 * homeCountry is submitted first, then the others largest first so the
+	 * last to finish are the small ones.
+	 *
+	 * @param homeCountry - the country to load first, may be null
+	 * @param listener - may be null
+	 * @return the index, being filled
+	 * @throws IOException if the zip cannot be opened
+	 * @throws RejectedExecutionException if executor rejects a country: it
+	 * and those after it fail, and the zip is closed once the countries
+	 * submitted are loaded
+	 */
+	public SymbolIndex loadAll(Executor executor, final String homeCountry,
+			final SymbolLoadListener listener) throws IOException {
+		final ZipFile file = new ZipFile(zip);
+		List<ZipEntry> entries = new ArrayList<ZipEntry>();
+		List<String> countries = new ArrayList<String>();
+		long bytes = 0;
+		try {
+			Enumeration<? extends ZipEntry> e = file.entries();
+			while (e.hasMoreElements()) {
+				ZipEntry entry = e.nextElement();
+				String country = getCountry(entry, INFO_DATABASE);
+				if (country != null) {
+					entries.add(entry);
+					countries.add(country);
+					bytes += Math.max(entry.getSize(), 0);
+				}
+			}
+		} catch (RuntimeException e) {
+			file.close();
+			throw e;
+		}
+		Collections.sort(entries, new Comparator<ZipEntry>() {
+			@Override
+			public int compare(ZipEntry e1, ZipEntry e2) {
+				boolean home1 = getCountry(e1, INFO_DATABASE).equals(homeCountry);
+				boolean home2 = getCountry(e2, INFO_DATABASE).equals(homeCountry);
+				if (home1 != home2) {
+					return home1 ? -1 : 1;
+				}
+				return Long.compare(e2.getSize(), e1.getSize());
+			}
+		});
+
+		final SymbolIndex index = new SymbolIndex(countries,
+				(int) Math.min(bytes / BYTES_PER_ROW, Integer.MAX_VALUE));
+		final AtomicInteger remaining = new AtomicInteger(entries.size());
+		if (entries.isEmpty()) {
+			file.close();
+			if (listener != null) {
+				listener.allLoaded(index);
+			}
+			return index;
+		}
+		final Runnable finish = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					file.close();
+				} catch (IOException e) {
+					// every entry is read
+				}
+				if (listener != null) {
+					listener.allLoaded(index);
+				}
+			}
+		};
+		int submitted = 0;
+		try {
+			for (final ZipEntry entry : entries) {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							load(file, entry, index, listener);
+						} finally {
+							if (remaining.decrementAndGet() == 0) {
+								finish.run();
+							}
+						}
+					}
+				});
+				submitted++;
+			}
+		} catch (RuntimeException e) {
+			// e.g. RejectedExecutionException: the countries not submitted
+			// fail, and whoever finishes last closes the zip
+			int unsubmitted = entries.size() - submitted;
+			for (ZipEntry entry : entries.subList(submitted, entries.size())) {
+				String country = getCountry(entry, INFO_DATABASE);
+				IOException failure = new IOException("Cannot load " + country,
+						e);
+				index.failed(failure);
+				if (listener != null) {
+					listener.countryFailed(index, country, failure);
+				}
+			}
+			if (remaining.addAndGet(-unsubmitted) == 0) {
+				finish.run();
+			}
+			throw e;
+		}
+		return index;
+	}
+
+	// ======================================================= package methods
+
+	/**
+	 * Load one country into index, on the calling thread. A failure is
+	 * recorded in index rather than thrown.
+	 */
+	static void load(ZipFile file, ZipEntry entry, SymbolIndex index,
+			SymbolLoadListener listener) {
+		String country = getCountry(entry, INFO_DATABASE);
+		SymbolTable table;
+		try {
+			// a pool per country: pools are not thread safe
+			table = read(file, entry,
+					index.newTable(country, capacity(entry)), new StringPool());
+		} catch (IOException e) {
+			index.failed(e);
+			if (listener != null) {
+				listener.countryFailed(index, country, e);
+			}
+			return;
+		} catch (RuntimeException e) {
+			IOException failure = new IOException("Cannot load " + country, e);
+			index.failed(failure);
+			if (listener != null) {
+				listener.countryFailed(index, country, failure);
+			}
+			return;
+		}
+		index.add(table);
+		if (listener != null) {
+			listener.countryLoaded(index, table);
+		}
+	}
+
+	/**
+	 * @return the country of entry if it is &lt;Country&gt;/database/name,
+	 * else null
+	 */
+	static String getCountry(ZipEntry entry, String name) {
+		if (entry.isDirectory()) {
+			return null;
+		}
+		String path = entry.getName();
+		String suffix = "/database/" + name;
+		if (!path.endsWith(suffix) || path.length() == suffix.length()) {
+			return null;
+		}
+		String country = path.substring(0, path.length() - suffix.length());
+		return (country.indexOf('/') == -1) ? country : null;
+	}
+
+	/**
+	 * @return rows to make room for in the table of entry
+	 */
+	static int capacity(ZipEntry entry) {
+		return (entry.getSize() > 0) ? (int) (entry.getSize() / BYTES_PER_ROW)
+				: 0;
+	}
+
+	static SymbolTable read(ZipFile file, ZipEntry entry, SymbolTable table,
+			StringPool pool) throws IOException {
+		InputStream in = file.getInputStream(entry);
+		try {
+			return read(in, table, pool);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Parse the rows of a stock-info-database.csv into table, and complete
+	 * it. The header row, and rows with too few columns, are skipped.
+	 */
+	static SymbolTable read(InputStream in, SymbolTable table, StringPool pool)
+			throws IOException {
+		CsvReader reader = new CsvReader(in);
+		boolean first = true;
+		while (reader.next()) {
+			if (first) {
+				first = false;
+				if (reader.isField(0, "Code")) {
+					continue;
+				}
+			}
+			if (reader.getFieldCount() < 4) {
+				continue;
+			}
+			table.add(reader.getField(0, pool), reader.getField(1, pool),
+					reader.getField(2, pool), reader.getField(3, pool));
+		}
+		table.complete();
+		return table;
+	}
+}
@@ -0,0 +1,99 @@
+/** StringPool.java                          JStock
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.yccheok.jstock.engine;
+
+/**
+ * Interns strings given as ranges of a char buffer, so that a value read
+ * many times, e.g. an Industry of "Unknown", is one String, and a String is
+ * only allocated the first time a value is seen.<br>
+ * An open addressing hash table of the Strings, with their hash codes. Not
+ * thread safe.
+ */
+final class StringPool {
+
+	private String[] strings = new String[1024];
+	private int[] hashes = new int[1024];
+	private int size = 0;
+
+	/**
+	 * @return the pooled String equal to length chars of chars from offset,
+	 * added if there is none
+	 */
+	String intern(char[] chars, int offset, int length) {
+		int hash = 0;
+		for (int i = offset, end = offset + length; i < end; i++) {
+			hash = 31 * hash + chars[i];
+		}
+		int mask = strings.length - 1;
+		for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+			String s = strings[i];
+			if (s == null) {
+				s = new String(chars, offset, length);
+				strings[i] = s;
+				hashes[i] = hash;
+				if (++size > strings.length >> 1) {
+					grow();
+				}
+				return s;
+			}
+			if (hashes[i] == hash && matches(s, chars, offset, length)) {
+				return s;
+			}
+		}
+	}
+
+	/**
+	 * @return the pooled String equal to s, added if there is none
+	 */
+	String intern(String s) {
+		return intern(s.toCharArray(), 0, s.length());
+	}
+
+	/**
+	 * @return number of distinct Strings pooled
+	 */
+	int size() {
+		return size;
+	}
+
+	// ======================================================= private methods
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean matches(String s, char[] chars, int offset,
+			int length) {
+		if (s.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (s.charAt(i) != chars[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void grow() {
+		String[] oldStrings = strings;
+		int[] oldHashes = hashes;
+		strings = new String[oldStrings.length << 1];
+		hashes = new int[strings.length];
+		int mask = strings.length - 1;
+		for (int j = 0; j < oldStrings.length; j++) {
+			if (oldStrings[j] == null) {
+				continue;
+			}
+			int i = spread(oldHashes[j]) & mask;
+			while (strings[i] != null) {
+				i = (i + 1) & mask;
+			}
+			strings[i] = oldStrings[j];
+			hashes[i] = oldHashes[j];
+		}
+	}
+}
@@ -0,0 +1,378 @@
+/** SymbolDatabase.java                          JStock
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.yccheok.jstock.engine;
+
+import static org.yccheok.jstock.engine.SymbolDatabaseWriter.COUNTRY_BYTES;
+import static org.yccheok.jstock.engine.SymbolDatabaseWriter.HEADER_BYTES;
+import static org.yccheok.jstock.engine.SymbolDatabaseWriter.MAGIC;
+import static org.yccheok.jstock.engine.SymbolDatabaseWriter.ROW_BYTES;
+import static org.yccheok.jstock.engine.SymbolDatabaseWriter.VERSION;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.ZipFile;
+
+/**
+ * The symbols of every country, compiled from database.zip into one binary
+ * file which is memory mapped: nothing is read until it is looked up, and
+ * then straight from the mapped pages.<br>
+ * Rows are numbered over all countries, a country's rows following each
+ * other. Industry and Board are held as codes into a sorted dictionary of
+ * each, shared by all countries, so codes compare as their values do
+ * whichever country the rows are of.
+ * <p>
+ * {@link #open(File, File)} compiles the file again whenever the database
+ * entries of the zip change, or the file is of another version. It may also
+ * be compiled ahead, at build time, by running this class.
+ * <p>
+ * Thread safe: the mapped buffer is only read, at absolute positions.
+ *
+ * @see SymbolDatabaseWriter the file format
+ */
+public final class SymbolDatabase {
+
+	private final ByteBuffer buffer;
+	private final long fingerprint;
+	private final int countryCount;
+	private final int rowCount;
+	private final int industryCount;
+	private final int boardCount;
+	// positions of the sections
+	private final int countries;
+	private final int industries;
+	private final int boards;
+	private final int rows;
+	private final int codes;
+	private final int heap;
+
+	private SymbolDatabase(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC
+				|| buffer.getInt(4) != VERSION) {
+			throw new IOException("Not a symbol database of version " + VERSION);
+		}
+		fingerprint = buffer.getLong(8);
+		countryCount = buffer.getInt(16);
+		rowCount = buffer.getInt(20);
+		industryCount = buffer.getInt(24);
+		boardCount = buffer.getInt(28);
+		countries = HEADER_BYTES;
+		industries = countries + countryCount * COUNTRY_BYTES;
+		boards = industries + industryCount * 4;
+		rows = boards + boardCount * 4;
+		codes = rows + rowCount * ROW_BYTES;
+		heap = codes + rowCount * 4;
+		if (size(buffer) != buffer.capacity()) {
+			throw new IOException("Truncated symbol database");
+		}
+	}
+
+	/**
+	 * Map file, compiling it from zip first if it is missing or out of date
+	 *
+	 * @param zip - database.zip
+	 * @param file - the compiled database, e.g. in the user's directory
+	 */
+	public static SymbolDatabase open(File zip, File file) throws IOException {
+		ZipFile zipFile = new ZipFile(zip);
+		try {
+			long fingerprint = SymbolDatabaseWriter.fingerprint(zipFile);
+			if (!isCurrent(file, fingerprint)) {
+				SymbolDatabaseWriter.write(zipFile, file);
+			}
+		} finally {
+			zipFile.close();
+		}
+		return map(file);
+	}
+
+	/**
+	 * Map file as it is
+	 *
+	 * @throws IOException if it is not a database of this version
+	 */
+	public static SymbolDatabase map(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ);
+		try {
+			// the mapping outlives the channel
+			return new SymbolDatabase(channel.map(FileChannel.MapMode.READ_ONLY,
+					0, channel.size()));
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * @return hash of the zip entries it was compiled from
+	 */
+	public long getFingerprint() {
+		return fingerprint;
+	}
+
+	public int getCountryCount() {
+		return countryCount;
+	}
+
+	public String getCountry(int country) {
+		checkCountry(country);
+		return getString(buffer.getInt(countries + country * COUNTRY_BYTES));
+	}
+
+	/**
+	 * @return the country named name, or -1
+	 */
+	public int indexOfCountry(String name) {
+		for (int country = 0; country < countryCount; country++) {
+			if (compare(buffer.getInt(countries + country * COUNTRY_BYTES),
+					name) == 0) {
+				return country;
+			}
+		}
+		return -1;
+	}
+
+	public int getFirstRow(int country) {
+		checkCountry(country);
+		return buffer.getInt(countries + country * COUNTRY_BYTES + 4);
+	}
+
+	public int getRowCount(int country) {
+		checkCountry(country);
+		return buffer.getInt(countries + country * COUNTRY_BYTES + 8);
+	}
+
+	/**
+	 * @return the country of row
+	 */
+	public int getCountryOf(int row) {
+		checkRow(row);
+		int low = 0;
+		int high = countryCount - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (buffer.getInt(countries + mid * COUNTRY_BYTES + 4) <= row) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return number of rows, over all countries
+	 */
+	public int size() {
+		return rowCount;
+	}
+
+	public String getCode(int row) {
+		checkRow(row);
+		return getString(buffer.getInt(rows + row * ROW_BYTES));
+	}
+
+	/**
+	 * @return the Symbol column, which holds the company name
+	 */
+	public String getSymbol(int row) {
+		checkRow(row);
+		return getString(buffer.getInt(rows + row * ROW_BYTES + 4));
+	}
+
+	/**
+	 * @return the full name from stock-name-database.csv, or null if the
+	 * country has none for row
+	 */
+	public String getName(int row) {
+		checkRow(row);
+		int offset = buffer.getInt(rows + row * ROW_BYTES + 8);
+		return (offset == -1) ? null : getString(offset);
+	}
+
+	public int getIndustryCode(int row) {
+		checkRow(row);
+		return buffer.getChar(rows + row * ROW_BYTES + 12);
+	}
+
+	public int getBoardCode(int row) {
+		checkRow(row);
+		return buffer.getChar(rows + row * ROW_BYTES + 14);
+	}
+
+	public String getIndustry(int row) {
+		return getIndustryValue(getIndustryCode(row));
+	}
+
+	public String getBoard(int row) {
+		return getBoardValue(getBoardCode(row));
+	}
+
+	/**
+	 * @return number of distinct Industry values, the codes being 0 to it
+	 */
+	public int getIndustryCount() {
+		return industryCount;
+	}
+
+	public String getIndustryValue(int code) {
+		if (code < 0 || code >= industryCount) {
+			throw new IndexOutOfBoundsException("industry " + code);
+		}
+		return getString(buffer.getInt(industries + code * 4));
+	}
+
+	/**
+	 * @return number of distinct Board values, the codes being 0 to it
+	 */
+	public int getBoardCount() {
+		return boardCount;
+	}
+
+	public String getBoardValue(int code) {
+		if (code < 0 || code >= boardCount) {
+			throw new IndexOutOfBoundsException("board " + code);
+		}
+		return getString(buffer.getInt(boards + code * 4));
+	}
+
+	/**
+	 * Binary search of the codes, compared in the mapped pages
+	 *
+	 * @return the first row of code, or -1 if there is none
+	 */
+	public int indexOf(String code) {
+		int low = 0;
+		int high = rowCount;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			int row = buffer.getInt(codes + mid * 4);
+			if (compare(buffer.getInt(rows + row * ROW_BYTES), code) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		if (low == rowCount) {
+			return -1;
+		}
+		int row = buffer.getInt(codes + low * 4);
+		return (compare(buffer.getInt(rows + row * ROW_BYTES), code) == 0)
+				? row : -1;
+	}
+
+	@Override
+	public String toString() {
+		return "SymbolDatabase (" + countryCount + " countries, " + rowCount
+				+ " symbols)";
+	}
+
+	/**
+	 * Compile a database ahead, e.g. at build time, if it is out of date
+	 *
+	 * @param args - database.zip, then the file to compile it into
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: SymbolDatabase <database.zip> <file>");
+			System.exit(1);
+		}
+		System.out.println(open(new File(args[0]), new File(args[1])));
+	}
+
+	// ======================================================= private methods
+
+	/**
+	 * @return true if file is a database of this version, compiled from a
+	 * zip with fingerprint. Only the header is read.
+	 */
+	private static boolean isCurrent(File file, long fingerprint)
+			throws IOException {
+		if (!file.isFile()) {
+			return false;
+		}
+		FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			while (header.hasRemaining()) {
+				if (channel.read(header) == -1) {
+					return false;
+				}
+			}
+			// a truncated or corrupt file is compiled again
+			return header.getInt(0) == MAGIC
+					&& header.getInt(4) == VERSION
+					&& header.getLong(8) == fingerprint
+					&& size(header) == channel.size();
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * @return the length of the file described by header, or -1 if a count
+	 * is negative
+	 */
+	private static long size(ByteBuffer header) {
+		long countryCount = header.getInt(16);
+		long rowCount = header.getInt(20);
+		long industryCount = header.getInt(24);
+		long boardCount = header.getInt(28);
+		long heapBytes = header.getInt(32);
+		if (countryCount < 0 || rowCount < 0 || industryCount < 0
+				|| boardCount < 0 || heapBytes < 0) {
+			return -1;
+		}
+		return HEADER_BYTES + countryCount * COUNTRY_BYTES
+				+ (industryCount + boardCount) * 4
+				+ rowCount * (ROW_BYTES + 4) + heapBytes;
+	}
+
+	private String getString(int offset) {
+		int position = heap + offset;
+		char[] chars = new char[buffer.getChar(position)];
+		position += 2;
+		for (int i = 0; i < chars.length; i++, position += 2) {
+			chars[i] = buffer.getChar(position);
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Compare the string at offset of the heap with s, as
+	 * {@link String#compareTo(String)}
+	 */
+	private int compare(int offset, String s) {
+		int position = heap + offset;
+		int length = buffer.getChar(position);
+		position += 2;
+		int n = Math.min(length, s.length());
+		for (int i = 0; i < n; i++, position += 2) {
+			char c = buffer.getChar(position);
+			if (c != s.charAt(i)) {
+				return c - s.charAt(i);
+			}
+		}
+		return length - s.length();
+	}
+
+	private void checkCountry(int country) {
+		if (country < 0 || country >= countryCount) {
+			throw new IndexOutOfBoundsException("country " + country + " of "
+					+ countryCount);
+		}
+	}
+
+	private void checkRow(int row) {
+		if (row < 0 || row >= rowCount) {
+			throw new IndexOutOfBoundsException("row " + row + " of " + rowCount);
+		}
+	}
+}
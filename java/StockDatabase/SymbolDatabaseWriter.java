@@ -0,0 +1,307 @@
+/** SymbolDatabaseWriter.java                          JStock
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.yccheok.jstock.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Compiles the stock-info-database.csv and stock-name-database.csv of every
+ * country in database.zip into the file read by {@link SymbolDatabase}.
+ * <p>
+ * The file, big-endian:
+ * <pre>
+ * header     magic, version, fingerprint of the zip (long), number of
+ *            countries, rows, Industry values, Board values, heap bytes
+ * countries  name, first row, number of rows
+ * industries the Industry dictionary, sorted
+ * boards     the Board dictionary, sorted
+ * rows       Code, Symbol, Name or -1, then the Industry and Board codes
+ *            as unsigned shorts
+ * codes      the rows ordered by Code
+ * heap       the strings: length as an unsigned short, then the chars
+ * </pre>
+ * Countries, rows and codes are fixed width, and strings are referred to by
+ * their offset in the heap. A country's rows follow each other, in the
+ * order of its stock-info-database.csv, and countries are in the order of
+ * the zip. A Name is the row of the same Code in the country's
+ * stock-name-database.csv, if it has one.
+ */
+final class SymbolDatabaseWriter {
+
+	static final int MAGIC = 0x4A534442; // "JSDB"
+	static final int VERSION = 1;
+	static final String NAME_DATABASE = "stock-name-database.csv";
+
+	static final int HEADER_BYTES = 36;
+	static final int COUNTRY_BYTES = 12;
+	static final int ROW_BYTES = 16;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private SymbolDatabaseWriter() {
+	}
+
+	/**
+	 * @return a hash of the name, size and CRC of each database entry of
+	 * file, which changes when any of them does
+	 */
+	static long fingerprint(ZipFile file) {
+		// FNV-1a
+		long hash = 0xcbf29ce484222325L;
+		Enumeration<? extends ZipEntry> entries = file.entries();
+		while (entries.hasMoreElements()) {
+			ZipEntry entry = entries.nextElement();
+			if (StockDatabaseLoader.getCountry(entry, StockDatabaseLoader.INFO_DATABASE) == null
+					&& StockDatabaseLoader.getCountry(entry, NAME_DATABASE) == null) {
+				continue;
+			}
+			for (byte b : entry.getName().getBytes(UTF_8)) {
+				hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+			}
+			hash = (hash ^ entry.getSize()) * 0x100000001b3L;
+			hash = (hash ^ entry.getCrc()) * 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Compile zip into out, through a temporary file so that out is either
+	 * the old or the new database
+	 */
+	static void write(ZipFile zip, File out) throws IOException {
+		Map<String, SymbolTable> tables = new LinkedHashMap<String, SymbolTable>();
+		Map<String, Map<String, String>> names = new HashMap<String, Map<String, String>>();
+		StringPool pool = new StringPool();
+		// only the values are written, so the codes need not be renumbered
+		ValueDictionary industries = new ValueDictionary();
+		ValueDictionary boards = new ValueDictionary();
+		Enumeration<? extends ZipEntry> entries = zip.entries();
+		while (entries.hasMoreElements()) {
+			ZipEntry entry = entries.nextElement();
+			String country = StockDatabaseLoader.getCountry(entry,
+					StockDatabaseLoader.INFO_DATABASE);
+			if (country != null) {
+				tables.put(country, StockDatabaseLoader.read(zip, entry,
+						new SymbolTable(country,
+								StockDatabaseLoader.capacity(entry), industries,
+								boards), pool));
+			}
+			country = StockDatabaseLoader.getCountry(entry, NAME_DATABASE);
+			if (country != null) {
+				names.put(country, readNames(zip, entry, pool));
+			}
+		}
+
+		// in the same directory, so that it can be moved over out
+		File tmp = File.createTempFile("symbols", ".tmp",
+				out.getAbsoluteFile().getParentFile());
+		boolean moved = false;
+		try {
+			DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16));
+			try {
+				write(output, fingerprint(zip), tables, names);
+			} finally {
+				output.close();
+			}
+			try {
+				Files.move(tmp.toPath(), out.toPath(),
+						StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp.toPath(), out.toPath(),
+						StandardCopyOption.REPLACE_EXISTING);
+			}
+			moved = true;
+		} finally {
+			if (!moved) {
+				tmp.delete();
+			}
+		}
+	}
+
+	// ======================================================= private methods
+
+	/**
+	 * @return Name by Code, of a stock-name-database.csv
+	 */
+	private static Map<String, String> readNames(ZipFile zip, ZipEntry entry,
+			StringPool pool) throws IOException {
+		Map<String, String> names = new HashMap<String, String>();
+		InputStream in = zip.getInputStream(entry);
+		try {
+			CsvReader reader = new CsvReader(in);
+			boolean first = true;
+			while (reader.next()) {
+				if (first) {
+					first = false;
+					if (reader.isField(0, "Code")) {
+						continue;
+					}
+				}
+				if (reader.getFieldCount() >= 2) {
+					names.put(reader.getField(0, pool), reader.getField(1, pool));
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return names;
+	}
+
+	private static void write(DataOutputStream out, long fingerprint,
+			Map<String, SymbolTable> tables,
+			Map<String, Map<String, String>> names) throws IOException {
+		TreeSet<String> industrySet = new TreeSet<String>();
+		TreeSet<String> boardSet = new TreeSet<String>();
+		int rowCount = 0;
+		for (SymbolTable table : tables.values()) {
+			for (int row = 0; row < table.size(); row++) {
+				industrySet.add(table.getIndustry(row));
+				boardSet.add(table.getBoard(row));
+			}
+			rowCount += table.size();
+		}
+		String[] industries = industrySet.toArray(new String[industrySet.size()]);
+		String[] boards = boardSet.toArray(new String[boardSet.size()]);
+		if (industries.length > 0xFFFF || boards.length > 0xFFFF) {
+			throw new IOException("Too many Industry or Board values");
+		}
+
+		Heap heap = new Heap();
+		// the rows, with their code and name
+		final String[] codes = new String[rowCount];
+		int[] rows = new int[rowCount * 3];
+		char[] rowIndustries = new char[rowCount];
+		char[] rowBoards = new char[rowCount];
+		int r = 0;
+		for (SymbolTable table : tables.values()) {
+			Map<String, String> countryNames = names.get(table.getCountry());
+			for (int row = 0; row < table.size(); row++, r++) {
+				codes[r] = table.getCode(row);
+				String name = (countryNames == null) ? null
+						: countryNames.get(codes[r]);
+				rows[r * 3] = heap.add(codes[r]);
+				rows[r * 3 + 1] = heap.add(table.getSymbol(row));
+				rows[r * 3 + 2] = (name == null) ? -1 : heap.add(name);
+				rowIndustries[r] = (char) Arrays.binarySearch(industries,
+						table.getIndustry(row));
+				rowBoards[r] = (char) Arrays.binarySearch(boards,
+						table.getBoard(row));
+			}
+		}
+		Integer[] byCode = new Integer[rowCount];
+		for (int i = 0; i < rowCount; i++) {
+			byCode[i] = i;
+		}
+		// stable, so a repeated Code keeps its rows in order
+		Arrays.sort(byCode, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer r1, Integer r2) {
+				return codes[r1].compareTo(codes[r2]);
+			}
+		});
+		int[] countryNames = new int[tables.size()];
+		int c = 0;
+		for (String country : tables.keySet()) {
+			countryNames[c++] = heap.add(country);
+		}
+		int[] industryValues = new int[industries.length];
+		for (int i = 0; i < industries.length; i++) {
+			industryValues[i] = heap.add(industries[i]);
+		}
+		int[] boardValues = new int[boards.length];
+		for (int i = 0; i < boards.length; i++) {
+			boardValues[i] = heap.add(boards[i]);
+		}
+
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeLong(fingerprint);
+		out.writeInt(tables.size());
+		out.writeInt(rowCount);
+		out.writeInt(industries.length);
+		out.writeInt(boards.length);
+		out.writeInt(heap.size());
+		int first = 0;
+		c = 0;
+		for (SymbolTable table : tables.values()) {
+			out.writeInt(countryNames[c++]);
+			out.writeInt(first);
+			out.writeInt(table.size());
+			first += table.size();
+		}
+		for (int value : industryValues) {
+			out.writeInt(value);
+		}
+		for (int value : boardValues) {
+			out.writeInt(value);
+		}
+		for (r = 0; r < rowCount; r++) {
+			out.writeInt(rows[r * 3]);
+			out.writeInt(rows[r * 3 + 1]);
+			out.writeInt(rows[r * 3 + 2]);
+			out.writeChar(rowIndustries[r]);
+			out.writeChar(rowBoards[r]);
+		}
+		for (Integer row : byCode) {
+			out.writeInt(row);
+		}
+		heap.writeTo(out);
+	}
+
+	/**
+	 * The string heap, each distinct string once
+	 */
+	private static class Heap {
+
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 20);
+		private final DataOutputStream out = new DataOutputStream(bytes);
+		private final Map<String, Integer> offsets = new HashMap<String, Integer>();
+
+		int add(String s) throws IOException {
+			Integer offset = offsets.get(s);
+			if (offset == null) {
+				if (s.length() > 0xFFFF) {
+					throw new IOException("String too long: " + s.length());
+				}
+				offset = bytes.size();
+				out.writeChar(s.length());
+				out.writeChars(s);
+				offsets.put(s, offset);
+			}
+			return offset;
+		}
+
+		int size() {
+			return bytes.size();
+		}
+
+		void writeTo(DataOutputStream output) throws IOException {
+			out.flush();
+			bytes.writeTo(output);
+		}
+	}
+}
@@ -0,0 +1,150 @@
+/** SymbolIndex.java                          JStock
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.yccheok.jstock.engine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The symbols of every country, with the table of each code, filled in as
+ * the countries are loaded.<br>
+ * Thread safe: it may be read while it is filled. A country is in the index
+ * once all of its codes are, so a code is found as soon as its country
+ * is.<br>
+ * The tables share their Industry and Board dictionaries. Their codes are
+ * renumbered in the order of the values once the last country is loaded,
+ * before the index is complete.
+ */
+public final class SymbolIndex {
+
+	private final ConcurrentMap<String, SymbolTable> tables;
+	private final ConcurrentMap<String, SymbolTable> byCode;
+	// position of each country in the zip, which decides duplicate codes
+	private final Map<String, Integer> zipOrder;
+	// countries in the order they were loaded
+	private final List<String> countries = new CopyOnWriteArrayList<String>();
+	private final List<IOException> failures = new CopyOnWriteArrayList<IOException>();
+	private final CountDownLatch pending;
+	// countries not yet loaded or failed: the last renumbers the codes
+	private final AtomicInteger loading;
+	private final ValueDictionary industries = new ValueDictionary();
+	private final ValueDictionary boards = new ValueDictionary();
+
+	/**
+	 * @param countries - the countries to be loaded, in the order of the zip
+	 * @param capacity - expected number of codes, over all countries
+	 */
+	SymbolIndex(List<String> countries, int capacity) {
+		tables = new ConcurrentHashMap<String, SymbolTable>(countries.size());
+		byCode = new ConcurrentHashMap<String, SymbolTable>(capacity);
+		zipOrder = new HashMap<String, Integer>(countries.size() * 2);
+		for (String country : countries) {
+			zipOrder.put(country, zipOrder.size());
+		}
+		pending = new CountDownLatch(countries.size());
+		loading = new AtomicInteger(countries.size());
+	}
+
+	/**
+	 * @return the table of country, or null if it is not loaded (yet)
+	 */
+	public SymbolTable getTable(String country) {
+		return tables.get(country);
+	}
+
+	/**
+	 * @return the countries loaded so far, in the order they were loaded
+	 */
+	public List<String> getCountries() {
+		return Collections.unmodifiableList(new ArrayList<String>(countries));
+	}
+
+	/**
+	 * @return the table holding code, or null if no loaded country has it.
+	 * A code held by several countries is found in the first of them in the
+	 * zip, whichever loads first, once that one is loaded.
+	 * @see SymbolTable#indexOf(String)
+	 */
+	public SymbolTable findTable(String code) {
+		return byCode.get(code);
+	}
+
+	/**
+	 * @return number of distinct codes loaded so far
+	 */
+	public int size() {
+		return byCode.size();
+	}
+
+	/**
+	 * @return true once every country is loaded or has failed, and the codes
+	 * are renumbered in the order of their values
+	 */
+	public boolean isComplete() {
+		return pending.getCount() == 0;
+	}
+
+	/**
+	 * Wait until every country is loaded or has failed. The listener of the
+	 * last may still be running.
+	 *
+	 * @throws IOException the first failure, if a country failed
+	 */
+	public void await() throws InterruptedException, IOException {
+		pending.await();
+		if (!failures.isEmpty()) {
+			throw failures.get(0);
+		}
+	}
+
+	// ======================================================= package methods
+
+	/**
+	 * @return a table for country, sharing the dictionaries of the index
+	 */
+	SymbolTable newTable(String country, int capacity) {
+		return new SymbolTable(country, capacity, industries, boards);
+	}
+
+	void add(SymbolTable table) {
+		int rank = zipOrder.get(table.getCountry());
+		for (int row = 0; row < table.size(); row++) {
+			String code = table.getCode(row);
+			SymbolTable held = byCode.putIfAbsent(code, table);
+			// codes are never removed, so held stays non-null
+			while (held != null && rank < zipOrder.get(held.getCountry())
+					&& !byCode.replace(code, held, table)) {
+				held = byCode.get(code);
+			}
+		}
+		tables.put(table.getCountry(), table);
+		countries.add(table.getCountry());
+		arrived();
+	}
+
+	void failed(IOException e) {
+		failures.add(e);
+		arrived();
+	}
+
+	// ======================================================= private methods
+
+	private void arrived() {
+		if (loading.decrementAndGet() == 0) {
+			SymbolTable.renumber(tables.values(), industries, boards);
+		}
+		pending.countDown();
+	}
+}
@@ -0,0 +1,30 @@
+/** SymbolLoadListener.java                          JStock
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.yccheok.jstock.engine;
+
+import java.io.IOException;
+
+/**
+ * Told of each country as {@link StockDatabaseLoader} loads it in the
+ * background, so it can be shown before the rest are loaded.<br>
+ * Called on the loading threads, maybe several at once: a Swing listener
+ * should hand its work to the event dispatch thread.
+ */
+public interface SymbolLoadListener {
+
+	/**
+	 * @param table - the loaded country, already in the index
+	 */
+	void countryLoaded(SymbolIndex index, SymbolTable table);
+
+	void countryFailed(SymbolIndex index, String country, IOException e);
+
+	/**
+	 * Every country is loaded or has failed, and the Industry and Board codes
+	 * are renumbered so they compare across countries
+	 */
+	void allLoaded(SymbolIndex index);
+}
@@ -0,0 +1,375 @@
+/** SymbolSearchIndex.java                          JStock
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.yccheok.jstock.engine;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Finds the symbols of a {@link SymbolDatabase} whose Code, Symbol or Name
+ * starts with what the user has typed so far, over all countries or one.
+ * <br>
+ * Each country has two sorted arrays: its Codes, and the words of its
+ * Symbols and Names. An entry is held as the row, the column and where it
+ * starts, not as a String. A word starts after any character which is not a
+ * letter or digit. In CJK names, which have no spaces, a word starts at every
+ * ideograph, so that a name is found by any part of it.
+ * <p>
+ * A search is a binary search of each array for the prefix, after which the
+ * matches follow each other in order. Over all countries, the countries'
+ * matches are merged in order, so finding the first few costs only as much
+ * as there are countries. Matching ignores case.
+ * <p>
+ * Results are the matches by Code, in order of Code, then by Symbol or Name,
+ * in order of the words matched, each row once.
+ * <p>
+ * Thread safe once built.
+ */
+public final class SymbolSearchIndex {
+
+	private static final int CODE = 0;
+	private static final int SYMBOL = 1;
+	private static final int NAME = 2;
+
+	private final SymbolDatabase database;
+	// lower case Code, Symbol and Name by row, Name null if there is none
+	private final String[][] columns = new String[3][];
+	private final Country[] countries;
+
+	private SymbolSearchIndex(SymbolDatabase database) {
+		this.database = database;
+		int size = database.size();
+		String[] codes = new String[size];
+		String[] symbols = new String[size];
+		String[] names = new String[size];
+		for (int row = 0; row < size; row++) {
+			codes[row] = normalize(database.getCode(row));
+			symbols[row] = normalize(database.getSymbol(row));
+			String name = database.getName(row);
+			names[row] = (name == null) ? null : normalize(name);
+		}
+		columns[CODE] = codes;
+		columns[SYMBOL] = symbols;
+		columns[NAME] = names;
+		countries = new Country[database.getCountryCount()];
+		for (int c = 0; c < countries.length; c++) {
+			countries[c] = new Country(database.getFirstRow(c),
+					database.getRowCount(c));
+		}
+	}
+
+	/**
+	 * Index every row of database
+	 */
+	public static SymbolSearchIndex build(SymbolDatabase database) {
+		return new SymbolSearchIndex(database);
+	}
+
+	public SymbolDatabase getDatabase() {
+		return database;
+	}
+
+	/**
+	 * @param prefix - what has been typed
+	 * @param limit - most rows to return
+	 * @return the rows of the database matching prefix in any country, best
+	 * first
+	 */
+	public int[] search(String prefix, int limit) {
+		return search(prefix, countries, limit);
+	}
+
+	/**
+	 * @param country - index of the country in the database
+	 * @return the rows of country matching prefix, best first
+	 * @see #search(String, int)
+	 */
+	public int[] search(String prefix, int country, int limit) {
+		if (country < 0 || country >= countries.length) {
+			throw new IndexOutOfBoundsException("country " + country + " of "
+					+ countries.length);
+		}
+		return search(prefix, new Country[] { countries[country] }, limit);
+	}
+
+	// ======================================================= private methods
+
+	private static String normalize(String s) {
+		return s.toLowerCase(Locale.ROOT);
+	}
+
+	private static boolean isWordStart(String s, int i) {
+		char c = s.charAt(i);
+		if (Character.isIdeographic(c)) {
+			return true;
+		}
+		if (!Character.isLetterOrDigit(c)) {
+			return false;
+		}
+		return i == 0 || !Character.isLetterOrDigit(s.charAt(i - 1));
+	}
+
+	/**
+	 * Compare s from offset with prefix, as far as prefix goes
+	 *
+	 * @return 0 if s starts with prefix at offset
+	 */
+	private static int comparePrefix(String s, int offset, String prefix) {
+		int n = Math.min(s.length() - offset, prefix.length());
+		for (int i = 0; i < n; i++) {
+			char c = s.charAt(offset + i);
+			char p = prefix.charAt(i);
+			if (c != p) {
+				return c - p;
+			}
+		}
+		return (n == prefix.length()) ? 0 : -1;
+	}
+
+	/**
+	 * Compare a from aOffset with b from bOffset
+	 */
+	private static int compareFrom(String a, int aOffset, String b,
+			int bOffset) {
+		int n = Math.min(a.length() - aOffset, b.length() - bOffset);
+		for (int i = 0; i < n; i++) {
+			char ca = a.charAt(aOffset + i);
+			char cb = b.charAt(bOffset + i);
+			if (ca != cb) {
+				return ca - cb;
+			}
+		}
+		return (a.length() - aOffset) - (b.length() - bOffset);
+	}
+
+	/**
+	 * @return the two chars of s from offset, a char past the end being 0
+	 */
+	private static long head(String s, int offset) {
+		long c1 = (offset < s.length()) ? s.charAt(offset) : 0;
+		long c2 = (offset + 1 < s.length()) ? s.charAt(offset + 1) : 0;
+		return (c1 << 16) | c2;
+	}
+
+	private int[] search(String prefix, Country[] scope, int limit) {
+		prefix = normalize(prefix.trim());
+		if (prefix.length() == 0 || limit <= 0) {
+			return new int[0];
+		}
+		Results results = new Results(Math.min(limit, database.size()));
+		Entries[] entries = new Entries[scope.length];
+		for (int c = 0; c < scope.length; c++) {
+			entries[c] = scope[c].codes;
+		}
+		merge(entries, prefix, results);
+		for (int c = 0; c < scope.length; c++) {
+			entries[c] = scope[c].words;
+		}
+		merge(entries, prefix, results);
+		return results.toArray();
+	}
+
+	/**
+	 * Add the rows of the entries matching prefix to results, in order, until
+	 * it is full
+	 */
+	private void merge(Entries[] entries, String prefix, Results results) {
+		// the range of matches left in each
+		int[] from = new int[entries.length];
+		int[] to = new int[entries.length];
+		for (int e = 0; e < entries.length; e++) {
+			from[e] = entries[e].lower(prefix);
+			to[e] = entries[e].upper(prefix, from[e]);
+		}
+		while (!results.isFull()) {
+			int best = -1;
+			for (int e = 0; e < entries.length; e++) {
+				if (from[e] < to[e] && (best == -1 || entries[e].compare(
+						from[e], entries[best], from[best]) < 0)) {
+					best = e;
+				}
+			}
+			if (best == -1) {
+				return;
+			}
+			results.add(entries[best].getRow(from[best]++));
+		}
+	}
+
+	/**
+	 * The sorted entries of one country
+	 */
+	private final class Country {
+
+		final Entries codes;
+		final Entries words;
+
+		Country(int first, int count) {
+			codes = new Entries(count);
+			words = new Entries(count * 2);
+			for (int row = first; row < first + count; row++) {
+				codes.add(row, CODE, 0);
+				for (int column = SYMBOL; column <= NAME; column++) {
+					String text = columns[column][row];
+					if (text == null) {
+						continue;
+					}
+					for (int i = 0; i < text.length(); i++) {
+						if (isWordStart(text, i)) {
+							words.add(row, column, i);
+						}
+					}
+				}
+			}
+			codes.sort();
+			words.sort();
+		}
+	}
+
+	/**
+	 * Entries, each the text of a column of a row from where it starts,
+	 * sorted by their text
+	 */
+	private final class Entries {
+
+		// row << 2 | column, and where the entry starts, by entry
+		private int[] entries;
+		private int[] starts;
+		private int size = 0;
+
+		Entries(int capacity) {
+			entries = new int[Math.max(capacity, 1)];
+			starts = new int[entries.length];
+		}
+
+		void add(int row, int column, int start) {
+			if (size == entries.length) {
+				entries = Arrays.copyOf(entries, size << 1);
+				starts = Arrays.copyOf(starts, size << 1);
+			}
+			entries[size] = (row << 2) | column;
+			starts[size++] = start;
+		}
+
+		void sort() {
+			entries = Arrays.copyOf(entries, size);
+			starts = Arrays.copyOf(starts, size);
+			sort(0, size, 0, new long[size]);
+		}
+
+		int getRow(int i) {
+			return entries[i] >>> 2;
+		}
+
+		/**
+		 * @return the first entry which is not less than prefix
+		 */
+		int lower(String prefix) {
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (comparePrefix(text(mid), starts[mid], prefix) < 0) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * @return the entry after the last to start with prefix
+		 */
+		int upper(String prefix, int from) {
+			int low = from;
+			int high = size;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (comparePrefix(text(mid), starts[mid], prefix) <= 0) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		int compare(int i, Entries other, int j) {
+			return compareFrom(text(i), starts[i], other.text(j),
+					other.starts[j]);
+		}
+
+		private String text(int i) {
+			return columns[entries[i] & 3][entries[i] >>> 2];
+		}
+
+		/**
+		 * Sort the entries from to to, whose first depth chars are the same,
+		 * by the chars which follow: a primitive sort by the next two, then
+		 * the same for each run of entries which tie on them. This is several
+		 * times quicker than comparing Strings, as many entries share long
+		 * prefixes.
+		 *
+		 * @param keys - a buffer of one key per entry
+		 */
+		private void sort(int from, int to, int depth, long[] keys) {
+			for (int i = from; i < to; i++) {
+				keys[i] = (head(text(i), starts[i] + depth) << 31) | (i - from);
+			}
+			Arrays.sort(keys, from, to);
+			int[] runEntries = Arrays.copyOfRange(entries, from, to);
+			int[] runStarts = Arrays.copyOfRange(starts, from, to);
+			for (int i = from; i < to; i++) {
+				int entry = (int) (keys[i] & 0x7FFFFFFF);
+				entries[i] = runEntries[entry];
+				starts[i] = runStarts[entry];
+			}
+			for (int run = from; run < to; ) {
+				long head = keys[run] >>> 31;
+				int end = run + 1;
+				while (end < to && (keys[end] >>> 31) == head) {
+					end++;
+				}
+				// entries which end within the two chars are equal
+				if (end - run > 1 && (head & 0xFFFF) != 0) {
+					sort(run, end, depth + 2, keys);
+				}
+				run = end;
+			}
+		}
+	}
+
+	/**
+	 * Up to limit distinct rows, in the order added
+	 */
+	private static final class Results {
+
+		private final int[] rows;
+		private int size = 0;
+
+		Results(int limit) {
+			rows = new int[limit];
+		}
+
+		boolean isFull() {
+			return size == rows.length;
+		}
+
+		void add(int row) {
+			for (int i = 0; i < size; i++) {
+				if (rows[i] == row) {
+					return;
+				}
+			}
+			rows[size++] = row;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(rows, size);
+		}
+	}
+}
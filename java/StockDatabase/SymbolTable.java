@@ -0,0 +1,258 @@
+/** SymbolTable.java                          JStock
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.yccheok.jstock.engine;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The stocks of one country, as read from its stock-info-database.csv, held
+ * by column: one array per column, indexed by row.<br>
+ * Values are pooled as they are read, so each distinct value is held once
+ * however many rows share it. Industry and Board, which have few values, are
+ * held per row as a code into a dictionary of the column's values.<br>
+ * The tables loaded together share one dictionary per column, so a code
+ * means the same value in every country. Once all of them are loaded, the
+ * codes are renumbered in the order of the values, so that they compare as
+ * their values do, across countries too. Until then they are in the order
+ * the values were first read, and only good for equality.
+ */
+public final class SymbolTable {
+
+	private final String country;
+	private int size = 0;
+	private String[] codes;
+	private String[] symbols;
+	// the codes while rows are added
+	private char[] industryCodes;
+	private char[] boardCodes;
+	private final ValueDictionary industries;
+	private final ValueDictionary boards;
+	// then the codes with their values, replaced as one when renumbered
+	private volatile Column industry;
+	private volatile Column board;
+	// open addressing table of row + 1 by code, 0 for an empty slot
+	private int[] slots = null;
+
+	/**
+	 * @param industries - dictionary of the Industry column, shared by the
+	 * tables loaded together
+	 * @param boards - dictionary of the Board column, likewise
+	 */
+	SymbolTable(String country, int capacity, ValueDictionary industries,
+			ValueDictionary boards) {
+		this.country = country;
+		this.industries = industries;
+		this.boards = boards;
+		capacity = Math.max(capacity, 16);
+		codes = new String[capacity];
+		symbols = new String[capacity];
+		industryCodes = new char[capacity];
+		boardCodes = new char[capacity];
+	}
+
+	public String getCountry() {
+		return country;
+	}
+
+	/**
+	 * @return number of rows
+	 */
+	public int size() {
+		return size;
+	}
+
+	public String getCode(int row) {
+		checkRow(row);
+		return codes[row];
+	}
+
+	/**
+	 * @return the Symbol column, which holds the company name
+	 */
+	public String getSymbol(int row) {
+		checkRow(row);
+		return symbols[row];
+	}
+
+	public String getIndustry(int row) {
+		checkRow(row);
+		return industry.get(row);
+	}
+
+	public String getBoard(int row) {
+		checkRow(row);
+		return board.get(row);
+	}
+
+	public int getIndustryCode(int row) {
+		checkRow(row);
+		return industry.codes[row];
+	}
+
+	public int getBoardCode(int row) {
+		checkRow(row);
+		return board.codes[row];
+	}
+
+	/**
+	 * @return number of Industry values, the codes being 0 to it: those of
+	 * every country loaded with this one, so far
+	 */
+	public int getIndustryCount() {
+		return industry.values.length;
+	}
+
+	public String getIndustryValue(int code) {
+		return industry.getValue(code);
+	}
+
+	/**
+	 * @return number of Board values, the codes being 0 to it: those of
+	 * every country loaded with this one, so far
+	 */
+	public int getBoardCount() {
+		return board.values.length;
+	}
+
+	public String getBoardValue(int code) {
+		return board.getValue(code);
+	}
+
+	/**
+	 * @return the row of code, or -1 if there is none
+	 */
+	public int indexOf(String code) {
+		if (slots == null) {
+			return -1;
+		}
+		int mask = slots.length - 1;
+		for (int i = spread(code.hashCode()) & mask; slots[i] != 0;
+				i = (i + 1) & mask) {
+			if (codes[slots[i] - 1].equals(code)) {
+				return slots[i] - 1;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public String toString() {
+		return country + " (" + size + " symbols)";
+	}
+
+	// ======================================================= package methods
+
+	void add(String code, String symbol, String industry, String board) {
+		if (size == codes.length) {
+			int capacity = size + (size >> 1);
+			codes = Arrays.copyOf(codes, capacity);
+			symbols = Arrays.copyOf(symbols, capacity);
+			industryCodes = Arrays.copyOf(industryCodes, capacity);
+			boardCodes = Arrays.copyOf(boardCodes, capacity);
+		}
+		codes[size] = code;
+		symbols[size] = symbol;
+		industryCodes[size] = (char) industries.add(industry);
+		boardCodes[size] = (char) boards.add(board);
+		size++;
+	}
+
+	/**
+	 * Release the unused capacity and index the codes, once all rows are
+	 * added. A code repeated keeps its first row.
+	 */
+	void complete() {
+		if (size < codes.length) {
+			codes = Arrays.copyOf(codes, size);
+			symbols = Arrays.copyOf(symbols, size);
+			industryCodes = Arrays.copyOf(industryCodes, size);
+			boardCodes = Arrays.copyOf(boardCodes, size);
+		}
+		industry = new Column(industryCodes, industries.values());
+		board = new Column(boardCodes, boards.values());
+		industryCodes = null;
+		boardCodes = null;
+		int capacity = Integer.highestOneBit(Math.max(size, 8)) << 2;
+		slots = new int[capacity];
+		int mask = capacity - 1;
+		for (int row = 0; row < size; row++) {
+			int i = spread(codes[row].hashCode()) & mask;
+			while (slots[i] != 0 && !codes[slots[i] - 1].equals(codes[row])) {
+				i = (i + 1) & mask;
+			}
+			if (slots[i] == 0) {
+				slots[i] = row + 1;
+			}
+		}
+	}
+
+	/**
+	 * Freeze the dictionaries of tables, once every table sharing them is
+	 * complete, and renumber the codes of each in the order of the values.
+	 * A reader of a table sees either the old codes and values or the new.
+	 */
+	static void renumber(Collection<SymbolTable> tables,
+			ValueDictionary industries, ValueDictionary boards) {
+		int[] industryRemap = industries.freeze();
+		int[] boardRemap = boards.freeze();
+		String[] industryValues = industries.values();
+		String[] boardValues = boards.values();
+		for (SymbolTable table : tables) {
+			table.industry = table.industry.renumber(industryRemap,
+					industryValues);
+			table.board = table.board.renumber(boardRemap, boardValues);
+		}
+	}
+
+	// ======================================================= private methods
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	private void checkRow(int row) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("row " + row + " of " + size);
+		}
+	}
+
+	// ============================================================ Column
+
+	/**
+	 * The codes of a column by row, and its values by code
+	 */
+	private static final class Column {
+
+		final char[] codes;
+		final String[] values;
+
+		Column(char[] codes, String[] values) {
+			this.codes = codes;
+			this.values = values;
+		}
+
+		String get(int row) {
+			return values[codes[row]];
+		}
+
+		String getValue(int code) {
+			if (code < 0 || code >= values.length) {
+				throw new IndexOutOfBoundsException("code " + code + " of "
+						+ values.length);
+			}
+			return values[code];
+		}
+
+		Column renumber(int[] remap, String[] sorted) {
+			char[] renumbered = new char[codes.length];
+			for (int row = 0; row < codes.length; row++) {
+				renumbered[row] = (char) remap[codes[row]];
+			}
+			return new Column(renumbered, sorted);
+		}
+	}
+}
@@ -0,0 +1,113 @@
+/** ValueDictionary.java                          JStock
+ *
+ * Created 18/10/2026
+ *
+ */
+package org.yccheok.jstock.engine;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The distinct values of a low cardinality column, e.g. Board, each given a
+ * code of 0 to 65535 which is held per row in place of the value.<br>
+ * One dictionary is shared by the tables of every country loaded together,
+ * so the same value has the same code in each. Codes are given in the order
+ * values are first added, by whichever table, then, once every table is
+ * complete, {@link #freeze()} gives them again in the order of the values,
+ * so that codes compare as their values do.<br>
+ * Thread safe: the tables of several countries may add at once.
+ */
+final class ValueDictionary {
+
+	static final int MAX_SIZE = 0x10000;
+
+	private String[] values = new String[8];
+	private int size = 0;
+	// code by value, until frozen
+	private volatile ConcurrentMap<String, Integer> codes = new ConcurrentHashMap<String, Integer>();
+
+	/**
+	 * @return the code of value, given the next code if it is new
+	 * @throws IllegalStateException if there would be more than MAX_SIZE
+	 * values, or after freeze
+	 */
+	int add(String value) {
+		ConcurrentMap<String, Integer> codes = this.codes;
+		if (codes == null) {
+			throw new IllegalStateException("Dictionary is frozen");
+		}
+		Integer code = codes.get(value);
+		if (code != null) {
+			return code;
+		}
+		synchronized (this) {
+			if (this.codes == null) {
+				throw new IllegalStateException("Dictionary is frozen");
+			}
+			code = codes.get(value);
+			if (code == null) {
+				if (size == MAX_SIZE) {
+					throw new IllegalStateException("More than " + MAX_SIZE
+							+ " values");
+				}
+				if (size == values.length) {
+					values = Arrays.copyOf(values, size << 1);
+				}
+				code = size;
+				values[size++] = value;
+				codes.put(value, code);
+			}
+			return code;
+		}
+	}
+
+	/**
+	 * Order the values, after which no more can be added
+	 *
+	 * @return the new code of each value by its old code
+	 * @throws IllegalStateException if already frozen
+	 */
+	synchronized int[] freeze() {
+		if (codes == null) {
+			throw new IllegalStateException("Dictionary is frozen");
+		}
+		Integer[] byValue = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			byValue[i] = i;
+		}
+		final String[] unsorted = values;
+		Arrays.sort(byValue, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return unsorted[a].compareTo(unsorted[b]);
+			}
+		});
+		int[] remap = new int[size];
+		values = new String[size];
+		for (int i = 0; i < size; i++) {
+			remap[byValue[i]] = i;
+			values[i] = unsorted[byValue[i]];
+		}
+		codes = null;
+		return remap;
+	}
+
+	/**
+	 * @return the values added so far, by code, not to be changed: a table
+	 * holds it with its codes, as later values do not change the earlier
+	 * codes. Once frozen, every table holds the same array.
+	 */
+	synchronized String[] values() {
+		return (codes == null) ? values : Arrays.copyOf(values, size);
+	}
+
+	/**
+	 * @return number of distinct values, the codes being 0 to it
+	 */
+	synchronized int size() {
+		return size;
+	}
+}